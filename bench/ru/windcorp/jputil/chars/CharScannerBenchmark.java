@@ -0,0 +1,189 @@
+/*
+ * JPUtil
+ * Copyright (C) 2019  Javapony/OLEGSHA
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package ru.windcorp.jputil.chars;
+
+import ru.windcorp.jputil.ArrayUtil;
+
+/**
+ * Compares the {@link CharScanner} implementations, a SWAR loop that compares four characters
+ * packed into a <code>long</code> at a time, and the character scans of {@link StringUtil} and
+ * {@link ArrayUtil} on inputs of 1K to 1M characters.
+ * Results are printed in millions of characters per second, best of several runs.
+ * <p>
+ * The vector implementation is only measured when <code>jdk.incubator.vector</code> is present.
+ * The {@link StringUtil} scans use whichever implementation is available, so they are compared
+ * by running the benchmark twice:
+ * <pre>
+ * javac --add-modules jdk.incubator.vector -d out $(find src bench -name '*.java')
+ * java -cp out ru.windcorp.jputil.chars.CharScannerBenchmark
+ * java --add-modules jdk.incubator.vector -cp out ru.windcorp.jputil.chars.CharScannerBenchmark
+ * </pre>
+ *
+ * @author Javapony
+ */
+public class CharScannerBenchmark {
+
+	private static final int[] SIZES = { 1024, 32 * 1024, 1024 * 1024 };
+
+	/**
+	 * Every <code>SEPARATOR_GAP</code>th character is a separator.
+	 */
+	private static final int SEPARATOR_GAP = 31;
+	private static final char[] SEPARATORS = { ',', ';', ':' };
+
+	private static final int CHARS_PER_RUN = 16 * 1024 * 1024;
+	private static final int RUNS = 10;
+
+	private static int sink = 0;
+
+	public static void main(String[] args) {
+		CharScanner vector = CharScanner.getInstance();
+		CharScanner scalar = CharScanner.getScalar();
+		boolean hasVector = vector != scalar;
+
+		System.out.println("Active implementation: " + vector);
+
+		for (int size : SIZES) {
+			char[] array = createInput(size);
+			String string = new String(array);
+			char[] noMatch = array.clone();
+			for (int i = 0; i < noMatch.length; ++i) {
+				if (noMatch[i] == SEPARATORS[0]) noMatch[i] = 'x';
+			}
+
+			System.out.println();
+			System.out.println(size + " chars, a separator every " + SEPARATOR_GAP + " chars:");
+
+			section("char[] indexOf, no match");
+			measure("SWAR", size, () -> swarIndexOf(noMatch, SEPARATORS[0]));
+			measure("scalar", size, () -> scalar.indexOf(noMatch, 0, noMatch.length, SEPARATORS[0]));
+			if (hasVector) measure("vector", size, () -> vector.indexOf(noMatch, 0, noMatch.length, SEPARATORS[0]));
+
+			section("char[] count");
+			measure("SWAR", size, () -> swarCount(array, SEPARATORS[0]));
+			measure("scalar", size, () -> scalar.count(array, 0, array.length, SEPARATORS[0]));
+			if (hasVector) measure("vector", size, () -> vector.count(array, 0, array.length, SEPARATORS[0]));
+
+			section("char[] countAny, 3 targets");
+			measure("scalar", size, () -> scalar.countAny(array, 0, array.length, SEPARATORS));
+			if (hasVector) measure("vector", size, () -> vector.countAny(array, 0, array.length, SEPARATORS));
+
+			section("StringUtil and ArrayUtil (" + vector + ")");
+			measure("count(String, char)", size, () -> StringUtil.count(string, SEPARATORS[0]));
+			measure("count(String, char...)", size, () -> StringUtil.count(string, SEPARATORS));
+			measure("split(String, char)", size, () -> StringUtil.split(string, SEPARATORS[0]).length);
+			measure("split(String, char...)", size, () -> StringUtil.split(string, SEPARATORS).length);
+			measure("remove(String, char...)", size, () -> StringUtil.remove(string, SEPARATORS).length());
+			measure("indexFromBeginning", size, () -> StringUtil.indexFromBeginning(array, SEPARATORS[0], size));
+			measure("ArrayUtil.firstIndexOf", size, () -> ArrayUtil.firstIndexOf(noMatch, SEPARATORS[0]));
+		}
+
+		if (sink == 42) System.out.println();
+	}
+
+	private static char[] createInput(int size) {
+		char[] result = new char[size];
+
+		for (int i = 0; i < size; ++i) {
+			if (i % SEPARATOR_GAP == SEPARATOR_GAP - 1) {
+				result[i] = SEPARATORS[(i / SEPARATOR_GAP) % SEPARATORS.length];
+			} else {
+				result[i] = (char) ('a' + i % 26);
+			}
+		}
+
+		return result;
+	}
+
+	private static final long LANE_ONES = 0x0001_0001_0001_0001L;
+	private static final long LANE_LOW_BITS = 0x7FFF_7FFF_7FFF_7FFFL;
+
+	private static long pack(char[] array, int i) {
+		return array[i]
+				| (long) array[i + 1] << 16
+				| (long) array[i + 2] << 32
+				| (long) array[i + 3] << 48;
+	}
+
+	/**
+	 * @return a word with the high bit set in exactly the 16-bit lanes of <code>word</code> that are zero
+	 */
+	private static long zeroLanes(long word) {
+		return ~(((word & LANE_LOW_BITS) + LANE_LOW_BITS) | word | LANE_LOW_BITS);
+	}
+
+	private static int swarIndexOf(char[] array, char target) {
+		long pattern = target * LANE_ONES;
+		int i = 0;
+
+		for (; i <= array.length - 4; i += 4) {
+			long zeroes = zeroLanes(pack(array, i) ^ pattern);
+			if (zeroes != 0) {
+				return i + (Long.numberOfTrailingZeros(zeroes) >>> 4);
+			}
+		}
+
+		for (; i < array.length; ++i) {
+			if (array[i] == target) return i;
+		}
+
+		return -1;
+	}
+
+	private static int swarCount(char[] array, char target) {
+		long pattern = target * LANE_ONES;
+		int result = 0;
+		int i = 0;
+
+		for (; i <= array.length - 4; i += 4) {
+			result += Long.bitCount(zeroLanes(pack(array, i) ^ pattern));
+		}
+
+		for (; i < array.length; ++i) {
+			if (array[i] == target) result++;
+		}
+
+		return result;
+	}
+
+	private static void section(String title) {
+		System.out.println("  " + title);
+	}
+
+	private static void measure(String name, int size, IntTask task) {
+		int repetitions = Math.max(1, CHARS_PER_RUN / size);
+		long best = Long.MAX_VALUE;
+
+		for (int run = 0; run < RUNS; ++run) {
+			long start = System.nanoTime();
+			for (int i = 0; i < repetitions; ++i) {
+				sink += task.run();
+			}
+			best = Math.min(best, System.nanoTime() - start);
+		}
+
+		long charsPerSecond = (long) ((double) size * repetitions / best * 1_000_000_000);
+		System.out.printf("    %-26s %8d M chars/s%n", name, charsPerSecond / 1_000_000);
+	}
+
+	@FunctionalInterface
+	private static interface IntTask {
+		int run();
+	}
+
+}
@@ -18,6 +18,8 @@ import java.lang.reflect.Array;
 import java.math.BigInteger;
 import java.util.Objects;
 
+import ru.windcorp.jputil.chars.CharScanner;
+
 public class ArrayUtil {
 	
 	private ArrayUtil() {}
@@ -297,12 +299,7 @@ public class ArrayUtil {
 	}
 	
 	public static int firstIndexOf(char[] array, char element) {
-		for (int i = 0; i < array.length; ++i) {
-			if (array[i] == element) {
-				return i;
-			}
-		}
-		return -1;
+		return CharScanner.getInstance().indexOf(array, 0, array.length, element);
 	}
 	
 	public static int lastIndexOf(char[] array, char element) {
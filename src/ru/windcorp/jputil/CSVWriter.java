@@ -17,18 +17,83 @@ package ru.windcorp.jputil;
 import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.io.Writer;
+import java.nio.CharBuffer;
 
+import ru.windcorp.jputil.chars.CharPredicate;
+
+/**
+ * Writes values as delimiter-separated text. Output is collected in an internal
+ * <code>char[]</code> buffer and passed to the parent {@link PrintWriter} in large blocks;
+ * {@link #flush()} and {@link #close()} pass on the rest. Numbers and character
+ * sequences are written straight into the buffer without boxing or intermediate
+ * {@link String}s.
+ * <p>
+ * Values that contain a quote, a line break or a character of the column or row
+ * separator are quoted as described in RFC 4180: the value is enclosed in
+ * <code>'"'</code> and each quote inside it is doubled. Values are checked with a
+ * compiled lookup table and plain values are copied at once. Quoting can be disabled
+ * with {@link #setQuoting(boolean)}.
+ * <p>
+ * Text written to the parent directly is not ordered with the buffered text unless
+ * this writer is flushed first.
+ *
+ * @author Javapony
+ */
 public class CSVWriter {
 	
+	protected static final int DEFAULT_BUFFER_SIZE = 8192;
+	
+	/**
+	 * The longest decimal representation of a <code>long</code>.
+	 */
+	private static final int MAX_LONG_LENGTH = 20;
+	
+	private static final char QUOTE = '"';
+	
+	/**
+	 * All characters that {@link Integer#toString(int)}, {@link Long#toString(long)},
+	 * {@link Double#toString(double)} and {@link Float#toString(float)} may produce.
+	 */
+	private static final String NUMBER_CHARS = "0123456789-.EInfinityNaN";
+	
 	private String columnSeparator = ";";
 	private String rowSeparator = "\n";
 	
 	private boolean shouldAddSeparator = false;
 	
+	private boolean quoting = true;
+	
+	/**
+	 * Matches the characters that require a value to be quoted. Created on first use
+	 * after the separators change.
+	 */
+	private CharPredicate needsQuoting = null;
+	
+	/**
+	 * Whether {@link #NUMBER_CHARS} contains a character that requires quoting.
+	 */
+	private boolean numbersNeedQuoting = false;
+	
 	private final PrintWriter parent;
 	
-	public CSVWriter(PrintWriter output) {
+	private final char[] buffer;
+	private int count = 0;
+	
+	/**
+	 * Used to format floating-point numbers, allocated on first use.
+	 */
+	private StringBuilder numberFormatBuffer = null;
+	
+	public CSVWriter(PrintWriter output, int bufferSize) {
+		if (bufferSize < MAX_LONG_LENGTH)
+			throw new IllegalArgumentException("bufferSize must be at least " + MAX_LONG_LENGTH + " (" + bufferSize + ")");
+		
 		this.parent = output;
+		this.buffer = new char[bufferSize];
+	}
+	
+	public CSVWriter(PrintWriter output) {
+		this(output, DEFAULT_BUFFER_SIZE);
 	}
 	
 	public CSVWriter(Writer output) {
@@ -49,6 +114,7 @@ public class CSVWriter {
 	
 	public CSVWriter setColumnSeparator(String columnSeparator) {
 		this.columnSeparator = columnSeparator;
+		this.needsQuoting = null;
 		return this;
 	}
 	
@@ -58,17 +124,174 @@ public class CSVWriter {
 	
 	public CSVWriter setRowSeparator(String rowSeparator) {
 		this.rowSeparator = rowSeparator;
+		this.needsQuoting = null;
+		return this;
+	}
+	
+	public boolean isQuoting() {
+		return quoting;
+	}
+	
+	/**
+	 * Enables or disables quoting. When quoting is disabled, values are written verbatim.
+	 * @param quoting whether values that contain special characters should be quoted
+	 * @return this object
+	 */
+	public CSVWriter setQuoting(boolean quoting) {
+		this.quoting = quoting;
 		return this;
 	}
 	
 	public void print(Object object) {
+		if (object instanceof CharSequence) {
+			print((CharSequence) object);
+			return;
+		}
+		
+		skip();
+		writeValue(String.valueOf(object));
+	}
+	
+	public void print(CharSequence chars) {
+		skip();
+		
+		if (chars == null) {
+			writeValue("null");
+		} else {
+			writeValue(chars, 0, chars.length());
+		}
+	}
+	
+	public void print(char[] chars, int offset, int length) {
+		skip();
+		
+		if (quoting) {
+			CharPredicate special = getNeedsQuoting();
+			
+			for (int i = offset; i < offset + length; ++i) {
+				if (special.test(chars[i])) {
+					writeQuoted(CharBuffer.wrap(chars, offset, length), 0, length);
+					return;
+				}
+			}
+		}
+		
+		write(chars, offset, length);
+	}
+	
+	public void print(char c) {
+		skip();
+		
+		if (quoting && getNeedsQuoting().test(c)) {
+			writeQuoted(String.valueOf(c), 0, 1);
+			return;
+		}
+		
+		writeChar(c);
+	}
+	
+	public void print(int value) {
+		skip();
+		
+		if (quoting && numbersNeedQuoting()) {
+			writeValue(getNumberFormatBuffer().append(value));
+			return;
+		}
+		
+		if (value == Integer.MIN_VALUE) {
+			write("-2147483648");
+			return;
+		}
+		
+		ensureCapacity(MAX_LONG_LENGTH);
+		
+		if (value < 0) {
+			buffer[count++] = '-';
+			value = -value;
+		}
+		
+		int length = 1;
+		for (int limit = 10; length < 10 && value >= limit; limit *= 10) {
+			length++;
+		}
+		
+		int end = count + length;
+		for (int i = end - 1; i >= count; --i) {
+			buffer[i] = (char) ('0' + value % 10);
+			value /= 10;
+		}
+		count = end;
+	}
+	
+	public void print(long value) {
+		if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+			print((int) value);
+			return;
+		}
+		
+		skip();
+		
+		if (quoting && numbersNeedQuoting()) {
+			writeValue(getNumberFormatBuffer().append(value));
+			return;
+		}
+		
+		if (value == Long.MIN_VALUE) {
+			write("-9223372036854775808");
+			return;
+		}
+		
+		ensureCapacity(MAX_LONG_LENGTH);
+		
+		if (value < 0) {
+			buffer[count++] = '-';
+			value = -value;
+		}
+		
+		int length = 1;
+		for (long limit = 10; length < 19 && value >= limit; limit *= 10) {
+			length++;
+		}
+		
+		int end = count + length;
+		for (int i = end - 1; i >= count; --i) {
+			buffer[i] = (char) ('0' + value % 10);
+			value /= 10;
+		}
+		count = end;
+	}
+	
+	/**
+	 * Prints the value as formatted by {@link Double#toString(double)}.
+	 */
+	public void print(double value) {
+		skip();
+		
+		writeValue(getNumberFormatBuffer().append(value));
+	}
+	
+	/**
+	 * Prints the value as formatted by {@link Float#toString(float)}.
+	 */
+	public void print(float value) {
 		skip();
-		getParent().print(String.valueOf(object));
+		
+		writeValue(getNumberFormatBuffer().append(value));
+	}
+	
+	private StringBuilder getNumberFormatBuffer() {
+		if (numberFormatBuffer == null) {
+			numberFormatBuffer = new StringBuilder();
+		} else {
+			numberFormatBuffer.setLength(0);
+		}
+		
+		return numberFormatBuffer;
 	}
 	
 	public void skip() {
 		if (shouldAddSeparator) {
-			getParent().print(getColumnSeparator());
+			write(getColumnSeparator());
 		} else {
 			shouldAddSeparator = true;
 		}
@@ -81,7 +304,7 @@ public class CSVWriter {
 	}
 	
 	public void endRow() {
-		getParent().print(getRowSeparator());
+		write(getRowSeparator());
 		shouldAddSeparator = false;
 	}
 	
@@ -90,11 +313,129 @@ public class CSVWriter {
 		endRow();
 	}
 	
+	private CharPredicate getNeedsQuoting() {
+		if (needsQuoting == null) {
+			String special = getColumnSeparator() + getRowSeparator() + QUOTE + "\r\n";
+			needsQuoting = CharPredicate.compile(CharPredicate.forArray(special.toCharArray()));
+			numbersNeedQuoting = indexOfSpecial(NUMBER_CHARS, 0, NUMBER_CHARS.length()) >= 0;
+		}
+		
+		return needsQuoting;
+	}
+	
+	private boolean numbersNeedQuoting() {
+		getNeedsQuoting();
+		return numbersNeedQuoting;
+	}
+	
+	private int indexOfSpecial(CharSequence chars, int start, int end) {
+		CharPredicate special = getNeedsQuoting();
+		
+		for (int i = start; i < end; ++i) {
+			if (special.test(chars.charAt(i))) return i;
+		}
+		
+		return -1;
+	}
+	
+	private void writeValue(CharSequence chars) {
+		writeValue(chars, 0, chars.length());
+	}
+	
+	/**
+	 * Writes the value, quoting it if necessary.
+	 */
+	private void writeValue(CharSequence chars, int start, int end) {
+		if (quoting && indexOfSpecial(chars, start, end) >= 0) {
+			writeQuoted(chars, start, end);
+		} else {
+			write(chars, start, end);
+		}
+	}
+	
+	/**
+	 * Writes the value enclosed in quotes with quotes inside it doubled.
+	 */
+	private void writeQuoted(CharSequence chars, int start, int end) {
+		writeChar(QUOTE);
+		
+		int runStart = start;
+		for (int i = start; i < end; ++i) {
+			if (chars.charAt(i) == QUOTE) {
+				write(chars, runStart, i + 1);
+				writeChar(QUOTE);
+				runStart = i + 1;
+			}
+		}
+		
+		write(chars, runStart, end);
+		writeChar(QUOTE);
+	}
+	
+	private void writeChar(char c) {
+		ensureCapacity(1);
+		buffer[count++] = c;
+	}
+	
+	private void write(String str) {
+		write(str, 0, str.length());
+	}
+	
+	private void write(CharSequence chars, int start, int end) {
+		while (start < end) {
+			if (count == buffer.length) {
+				flushBuffer();
+			}
+			
+			int length = Math.min(buffer.length - count, end - start);
+			
+			if (chars instanceof String) {
+				((String) chars).getChars(start, start + length, buffer, count);
+			} else if (chars instanceof StringBuilder) {
+				((StringBuilder) chars).getChars(start, start + length, buffer, count);
+			} else {
+				for (int i = 0; i < length; ++i) {
+					buffer[count + i] = chars.charAt(start + i);
+				}
+			}
+			
+			count += length;
+			start += length;
+		}
+	}
+	
+	private void write(char[] chars, int offset, int length) {
+		if (length > buffer.length) {
+			// Too long to buffer
+			flushBuffer();
+			getParent().write(chars, offset, length);
+			return;
+		}
+		
+		ensureCapacity(length);
+		System.arraycopy(chars, offset, buffer, count, length);
+		count += length;
+	}
+	
+	private void ensureCapacity(int length) {
+		if (buffer.length - count < length) {
+			flushBuffer();
+		}
+	}
+	
+	private void flushBuffer() {
+		if (count == 0) return;
+		getParent().write(buffer, 0, count);
+		count = 0;
+	}
+	
 	public void flush() {
+		flushBuffer();
 		getParent().flush();
 	}
 	
 	public void close() {
+		flushBuffer();
 		getParent().close();
 	}
 
@@ -30,12 +30,18 @@ public class Version implements Comparable<Version> {
 	}
 
 	public Version(String string) {
-		String[] parts = StringUtil.split(string, '.');
-		this.subVersions = new int[parts.length];
+		int[] ends = new int[StringUtil.count(string, '.') + 1];
+		StringUtil.splitIndices(string, '.', ends);
 		
-		for (int i = 0; i < this.subVersions.length; ++i) {
-			this.subVersions[i] = Integer.parseInt(parts[i]);
+		// Field bounds are replaced with parsed values in place
+		int start = 0;
+		for (int i = 0; i < ends.length; ++i) {
+			int end = ends[i];
+			ends[i] = Integer.parseInt(string.substring(start, end));
+			start = end + 1;
 		}
+		
+		this.subVersions = ends;
 	}
 	
 	public int[] getSubVersions() {
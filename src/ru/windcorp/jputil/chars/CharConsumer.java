@@ -24,6 +24,38 @@ public interface CharConsumer {
 
 	void accept(char c);
 	
+	/**
+	 * Accepts <code>length</code> characters of the array starting at <code>offset</code>.
+	 * The default implementation calls {@link #accept(char)} for each character;
+	 * implementations should override it to copy the characters at once.
+	 * 
+	 * @param buffer the array that contains the characters
+	 * @param offset index of the first character
+	 * @param length the amount of characters to accept
+	 */
+	default void accept(char[] buffer, int offset, int length) {
+		int end = offset + length;
+		for (int i = offset; i < end; ++i) {
+			accept(buffer[i]);
+		}
+	}
+	
+	/**
+	 * Accepts <code>length</code> characters of the sequence starting at <code>offset</code>.
+	 * The default implementation calls {@link #accept(char)} for each character;
+	 * implementations should override it to copy the characters at once.
+	 * 
+	 * @param chars the sequence that contains the characters
+	 * @param offset index of the first character
+	 * @param length the amount of characters to accept
+	 */
+	default void accept(CharSequence chars, int offset, int length) {
+		int end = offset + length;
+		for (int i = offset; i < end; ++i) {
+			accept(chars.charAt(i));
+		}
+	}
+	
 	public static CharConsumer andThen(CharConsumer first, CharConsumer second) {
 		return c -> {
 			first.accept(c);
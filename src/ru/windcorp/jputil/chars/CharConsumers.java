@@ -17,6 +17,10 @@
  */
 package ru.windcorp.jputil.chars;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
 import java.util.Objects;
 
 import ru.windcorp.jputil.ArrayUtil;
@@ -63,7 +67,191 @@ public class CharConsumers {
 				throw new ArrayIndexOutOfBoundsException(end);
 			array[i++] = c;
 		}
+		
+		/**
+		 * @see ru.windcorp.jputil.chars.CharConsumer#accept(char[], int, int)
+		 */
+		@Override
+		public void accept(char[] buffer, int offset, int length) {
+			if (end - i < length)
+				throw new ArrayIndexOutOfBoundsException(end);
+			System.arraycopy(buffer, offset, array, i, length);
+			i += length;
+		}
+		
+		/**
+		 * @see ru.windcorp.jputil.chars.CharConsumer#accept(java.lang.CharSequence, int, int)
+		 */
+		@Override
+		public void accept(CharSequence chars, int offset, int length) {
+			if (end - i < length)
+				throw new ArrayIndexOutOfBoundsException(end);
+			
+			if (chars instanceof String) {
+				((String) chars).getChars(offset, offset + length, array, i);
+				i += length;
+			} else {
+				CharConsumer.super.accept(chars, offset, length);
+			}
+		}
 
 	}
+	
+	public static CharConsumer append(StringBuilder sb) {
+		return new StringBuilderAppender(sb);
+	}
+	
+	private static class StringBuilderAppender implements CharConsumer {
+		
+		final StringBuilder sb;
+		
+		StringBuilderAppender(StringBuilder sb) {
+			this.sb = Objects.requireNonNull(sb, "sb");
+		}
+		
+		/**
+		 * @see ru.windcorp.jputil.chars.CharConsumer#accept(char)
+		 */
+		@Override
+		public void accept(char c) {
+			sb.append(c);
+		}
+		
+		/**
+		 * @see ru.windcorp.jputil.chars.CharConsumer#accept(char[], int, int)
+		 */
+		@Override
+		public void accept(char[] buffer, int offset, int length) {
+			sb.append(buffer, offset, length);
+		}
+		
+		/**
+		 * @see ru.windcorp.jputil.chars.CharConsumer#accept(java.lang.CharSequence, int, int)
+		 */
+		@Override
+		public void accept(CharSequence chars, int offset, int length) {
+			sb.append(chars, offset, offset + length);
+		}
+		
+	}
+	
+	/**
+	 * Creates a consumer that appends characters to the given {@link Appendable}.
+	 * {@link IOException}s are rethrown as {@link UncheckedIOException}s.
+	 * @param appendable the object to append to
+	 * @return a new {@link CharConsumer}
+	 */
+	public static CharConsumer append(Appendable appendable) {
+		if (appendable instanceof StringBuilder) {
+			return append((StringBuilder) appendable);
+		}
+		if (appendable instanceof Writer) {
+			return write((Writer) appendable);
+		}
+		
+		return new AppendableAppender(appendable);
+	}
+	
+	private static class AppendableAppender implements CharConsumer {
+		
+		final Appendable appendable;
+		
+		AppendableAppender(Appendable appendable) {
+			this.appendable = Objects.requireNonNull(appendable, "appendable");
+		}
+		
+		/**
+		 * @see ru.windcorp.jputil.chars.CharConsumer#accept(char)
+		 */
+		@Override
+		public void accept(char c) {
+			try {
+				appendable.append(c);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		
+		/**
+		 * @see ru.windcorp.jputil.chars.CharConsumer#accept(char[], int, int)
+		 */
+		@Override
+		public void accept(char[] buffer, int offset, int length) {
+			accept(CharBuffer.wrap(buffer, offset, length), 0, length);
+		}
+		
+		/**
+		 * @see ru.windcorp.jputil.chars.CharConsumer#accept(java.lang.CharSequence, int, int)
+		 */
+		@Override
+		public void accept(CharSequence chars, int offset, int length) {
+			try {
+				appendable.append(chars, offset, offset + length);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		
+	}
+	
+	/**
+	 * Creates a consumer that writes characters to the given {@link Writer}.
+	 * {@link IOException}s are rethrown as {@link UncheckedIOException}s.
+	 * @param writer the writer to write to
+	 * @return a new {@link CharConsumer}
+	 */
+	public static CharConsumer write(Writer writer) {
+		return new WriterWriter(writer);
+	}
+	
+	private static class WriterWriter implements CharConsumer {
+		
+		final Writer writer;
+		
+		WriterWriter(Writer writer) {
+			this.writer = Objects.requireNonNull(writer, "writer");
+		}
+		
+		/**
+		 * @see ru.windcorp.jputil.chars.CharConsumer#accept(char)
+		 */
+		@Override
+		public void accept(char c) {
+			try {
+				writer.write(c);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		
+		/**
+		 * @see ru.windcorp.jputil.chars.CharConsumer#accept(char[], int, int)
+		 */
+		@Override
+		public void accept(char[] buffer, int offset, int length) {
+			try {
+				writer.write(buffer, offset, length);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		
+		/**
+		 * @see ru.windcorp.jputil.chars.CharConsumer#accept(java.lang.CharSequence, int, int)
+		 */
+		@Override
+		public void accept(CharSequence chars, int offset, int length) {
+			try {
+				if (chars instanceof String) {
+					writer.write((String) chars, offset, length);
+				} else {
+					writer.append(chars, offset, offset + length);
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		
+	}
 
 }
@@ -17,28 +17,59 @@
  */
 package ru.windcorp.jputil.chars;
 
-import java.util.Arrays;
 import java.util.function.IntPredicate;
 
 import ru.windcorp.jputil.ArrayUtil;
 
+// SonarLint: Constants should not be defined in interfaces (java:S1214)
+//   WHITESPACE is the most common predicate and belongs with the factories
+@SuppressWarnings("squid:S1214")
+
 @FunctionalInterface
 public interface CharPredicate {
+	
+	/**
+	 * A compiled predicate equivalent to {@link Character#isWhitespace(char)}.
+	 */
+	CharPredicate WHITESPACE = compile(Character::isWhitespace);
 
 	boolean test(char c);
 	
 	public static CharPredicate and(CharPredicate first, CharPredicate second) {
+		if (first instanceof CompiledCharPredicate && second instanceof CompiledCharPredicate) {
+			return CompiledCharPredicate.and((CompiledCharPredicate) first, (CompiledCharPredicate) second);
+		}
+		
 		return c -> first.test(c) && second.test(c);
 	}
 	
 	public static CharPredicate or(CharPredicate first, CharPredicate second) {
+		if (first instanceof CompiledCharPredicate && second instanceof CompiledCharPredicate) {
+			return CompiledCharPredicate.or((CompiledCharPredicate) first, (CompiledCharPredicate) second);
+		}
+		
 		return c -> first.test(c) || second.test(c);
 	}
 	
 	public static CharPredicate negate(CharPredicate predicate) {
+		if (predicate instanceof CompiledCharPredicate) {
+			return CompiledCharPredicate.negate((CompiledCharPredicate) predicate);
+		}
+		
 		return c -> !predicate.test(c);
 	}
 	
+	/**
+	 * Converts the predicate into lookup tables. The predicate is evaluated for
+	 * all ASCII characters immediately and for the rest of the BMP when a non-ASCII
+	 * character is first tested, so it must be pure.
+	 * @param predicate the predicate to compile
+	 * @return a {@link CompiledCharPredicate} equivalent to <code>predicate</code>
+	 */
+	public static CharPredicate compile(CharPredicate predicate) {
+		return CompiledCharPredicate.compile(predicate);
+	}
+	
 	public static IntPredicate toInt(CharPredicate predicate) {
 		return i -> predicate.test((char) i);
 	}
@@ -59,9 +90,7 @@ public interface CharPredicate {
 		if (chars.length < 16) {
 			return c -> ArrayUtil.firstIndexOf(chars, c) >= 0;
 		} else {
-			final char[] sorted = Arrays.copyOf(chars, chars.length);
-			Arrays.sort(sorted);
-			return c -> Arrays.binarySearch(chars, c) >= 0;
+			return CompiledCharPredicate.forArray(chars);
 		}
 	}
 	
@@ -0,0 +1,198 @@
+/*
+ * JPUtil
+ * Copyright (C) 2019  Javapony/OLEGSHA
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package ru.windcorp.jputil.chars;
+
+import java.lang.reflect.Method;
+import java.util.Optional;
+
+/**
+ * Searches <code>char[]</code> ranges for characters. Ranges are given as
+ * <code>[from; to)</code> and are not checked beyond what array access checks.
+ * <p>
+ * {@link #getInstance()} returns a SIMD implementation built on the
+ * <code>jdk.incubator.vector</code> module if the module is present in the boot layer
+ * (it is only resolved with <code>--add-modules jdk.incubator.vector</code>),
+ * and {@link #getScalar() the scalar implementation} otherwise.
+ *
+ * @author Javapony
+ * @see StringUtil#indexFromBeginning(char[], char, int)
+ */
+public abstract class CharScanner {
+
+	private static final String VECTOR_MODULE = "jdk.incubator.vector";
+	private static final String VECTOR_IMPLEMENTATION = "ru.windcorp.jputil.chars.VectorCharScanner";
+
+	private static final CharScanner SCALAR = new Scalar();
+	private static final CharScanner INSTANCE = createInstance();
+
+	/**
+	 * @return the fastest implementation available in this JVM
+	 */
+	public static CharScanner getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * @return the implementation that does not depend on <code>jdk.incubator.vector</code>
+	 */
+	public static CharScanner getScalar() {
+		return SCALAR;
+	}
+
+	private static CharScanner createInstance() {
+		if (!isVectorModulePresent()) return SCALAR;
+
+		try {
+			return (CharScanner) Class.forName(VECTOR_IMPLEMENTATION).getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException | LinkageError | ClassCastException e) {
+			return SCALAR;
+		}
+	}
+
+	/**
+	 * Checks <code>ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent()</code> reflectively,
+	 * so that this class also loads on Java 8.
+	 */
+	private static boolean isVectorModulePresent() {
+		try {
+			Class<?> moduleLayer = Class.forName("java.lang.ModuleLayer");
+			Object boot = moduleLayer.getMethod("boot").invoke(null);
+			Method findModule = moduleLayer.getMethod("findModule", String.class);
+			return ((Optional<?>) findModule.invoke(boot, VECTOR_MODULE)).isPresent();
+		} catch (ReflectiveOperationException | LinkageError | ClassCastException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Finds the first occurrence of the character.
+	 * @param array the array to search in
+	 * @param from the index to start at
+	 * @param to the index to stop before
+	 * @param target the character to search for
+	 * @return the index of the first <code>target</code> in <code>array[from; to)</code> or -1 if none found
+	 */
+	public abstract int indexOf(char[] array, int from, int to, char target);
+
+	/**
+	 * Finds the first occurrence of any of the characters.
+	 * @param array the array to search in
+	 * @param from the index to start at
+	 * @param to the index to stop before
+	 * @param targets the characters to search for
+	 * @return the index of the first character of <code>array[from; to)</code> contained in
+	 * <code>targets</code> or -1 if none found
+	 */
+	public abstract int indexOfAny(char[] array, int from, int to, char[] targets);
+
+	/**
+	 * Counts the occurrences of the character.
+	 * @param array the array to search in
+	 * @param from the index to start at
+	 * @param to the index to stop before
+	 * @param target the character to count
+	 * @return the amount of <code>target</code> characters in <code>array[from; to)</code>
+	 */
+	public abstract int count(char[] array, int from, int to, char target);
+
+	/**
+	 * Counts the characters that are contained in <code>targets</code>.
+	 * @param array the array to search in
+	 * @param from the index to start at
+	 * @param to the index to stop before
+	 * @param targets the characters to count
+	 * @return the amount of characters of <code>array[from; to)</code> contained in <code>targets</code>
+	 */
+	public abstract int countAny(char[] array, int from, int to, char[] targets);
+
+	static int indexOfAnyScalar(char[] array, int from, int to, char[] targets) {
+		for (int i = from; i < to; ++i) {
+			char c = array[i];
+			for (char t : targets) {
+				if (c == t) {
+					return i;
+				}
+			}
+		}
+
+		return -1;
+	}
+
+	static int countAnyScalar(char[] array, int from, int to, char[] targets) {
+		int result = 0;
+
+		for (int i = from; i < to; ++i) {
+			char c = array[i];
+			for (char t : targets) {
+				if (c == t) {
+					result++;
+					break;
+				}
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Compares one character at a time. C2 unrolls these loops, which on <code>char[]</code>
+	 * is faster than packing four characters into a <code>long</code> and comparing them at once
+	 * (see <code>CharScannerBenchmark</code>).
+	 */
+	private static class Scalar extends CharScanner {
+
+		@Override
+		public int indexOf(char[] array, int from, int to, char target) {
+			for (int i = from; i < to; ++i) {
+				if (array[i] == target) return i;
+			}
+
+			return -1;
+		}
+
+		@Override
+		public int indexOfAny(char[] array, int from, int to, char[] targets) {
+			if (targets.length == 1) return indexOf(array, from, to, targets[0]);
+			return indexOfAnyScalar(array, from, to, targets);
+		}
+
+		@Override
+		public int count(char[] array, int from, int to, char target) {
+			int result = 0;
+
+			for (int i = from; i < to; ++i) {
+				if (array[i] == target) result++;
+			}
+
+			return result;
+		}
+
+		@Override
+		public int countAny(char[] array, int from, int to, char[] targets) {
+			if (targets.length == 1) return count(array, from, to, targets[0]);
+			return countAnyScalar(array, from, to, targets);
+		}
+
+		@Override
+		public String toString() {
+			return "scalar";
+		}
+
+	}
+
+}
@@ -0,0 +1,165 @@
+/*
+ * JPUtil
+ * Copyright (C) 2019  Javapony/OLEGSHA
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package ru.windcorp.jputil.chars;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * A {@link Spliterator} over the concatenations of one string from each part, in the
+ * order of {@link StringUtil#allCombinations(String[]...)}. Combination <code>i</code>
+ * is <code>i</code> written as a mixed-radix number with one digit per part, the last
+ * part being the least significant. Splitting divides the index range in half.
+ * <p>
+ * Consecutive combinations share a prefix, so only the parts after the highest
+ * changed digit are appended again.
+ *
+ * @author Javapony
+ * @see StringUtil#streamCombinations(String[]...)
+ */
+class CombinationSpliterator implements Spliterator<String> {
+
+	private final String[][] parts;
+
+	/**
+	 * Remaining combinations are <code>[index; end)</code>.
+	 */
+	private long index;
+	private final long end;
+
+	/**
+	 * Digits of the last returned combination, or <code>null</code> if no combination
+	 * has been built since the last split.
+	 */
+	private int[] digits = null;
+
+	/**
+	 * <code>prefixLengths[k]</code> is the length of {@link #sb} before the string from part <code>k</code>.
+	 */
+	private final int[] prefixLengths;
+	private final StringBuilder sb = new StringBuilder();
+
+	CombinationSpliterator(String[][] parts) {
+		this(parts, 0, countCombinations(parts));
+	}
+
+	private CombinationSpliterator(String[][] parts, long index, long end) {
+		this.parts = parts;
+		this.index = index;
+		this.end = end;
+		this.prefixLengths = new int[parts.length];
+	}
+
+	private static long countCombinations(String[][] parts) {
+		long result = 1;
+
+		for (String[] part : parts) {
+			if (part.length == 0) return 0;
+
+			if (result > Long.MAX_VALUE / part.length)
+				throw new IllegalArgumentException("Too many combinations");
+			result *= part.length;
+		}
+
+		return result;
+	}
+
+	/**
+	 * @see java.util.Spliterator#tryAdvance(java.util.function.Consumer)
+	 */
+	@Override
+	public boolean tryAdvance(Consumer<? super String> action) {
+		if (index >= end) return false;
+
+		if (digits == null) {
+			buildFirst();
+		} else {
+			buildNext();
+		}
+
+		index++;
+		action.accept(sb.toString());
+		return true;
+	}
+
+	private void buildFirst() {
+		digits = new int[parts.length];
+
+		long rest = index;
+		for (int k = parts.length - 1; k >= 0; --k) {
+			digits[k] = (int) (rest % parts[k].length);
+			rest /= parts[k].length;
+		}
+
+		sb.setLength(0);
+		appendFrom(0);
+	}
+
+	private void buildNext() {
+		int k = parts.length - 1;
+
+		while (++digits[k] == parts[k].length) {
+			digits[k] = 0;
+			k--;
+		}
+
+		sb.setLength(prefixLengths[k]);
+		appendFrom(k);
+	}
+
+	private void appendFrom(int level) {
+		for (int k = level; k < parts.length; ++k) {
+			prefixLengths[k] = sb.length();
+			sb.append(parts[k][digits[k]]);
+		}
+	}
+
+	/**
+	 * @see java.util.Spliterator#trySplit()
+	 */
+	@Override
+	public Spliterator<String> trySplit() {
+		long remaining = end - index;
+		if (remaining < 2) return null;
+
+		long middle = index + remaining / 2;
+		CombinationSpliterator prefix = new CombinationSpliterator(parts, index, middle);
+
+		index = middle;
+		digits = null;
+
+		return prefix;
+	}
+
+	/**
+	 * @see java.util.Spliterator#estimateSize()
+	 */
+	@Override
+	public long estimateSize() {
+		return end - index;
+	}
+
+	/**
+	 * @see java.util.Spliterator#characteristics()
+	 */
+	@Override
+	public int characteristics() {
+		return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+	}
+
+}
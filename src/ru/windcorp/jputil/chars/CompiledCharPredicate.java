@@ -0,0 +1,167 @@
+/* 
+ * JPUtil
+ * Copyright (C) 2019  Javapony/OLEGSHA
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package ru.windcorp.jputil.chars;
+
+import java.util.function.Supplier;
+
+/**
+ * A {@link CharPredicate} backed by lookup tables. ASCII characters are tested
+ * against two 64-bit masks; other characters are tested against a bitset for the
+ * entire BMP (8 KiB) that is built on first use.
+ * <p>
+ * Instances are created with {@link CharPredicate#compile(CharPredicate)}.
+ * {@link CharPredicate#and(CharPredicate, CharPredicate)},
+ * {@link CharPredicate#or(CharPredicate, CharPredicate)} and
+ * {@link CharPredicate#negate(CharPredicate)} combine the tables of compiled
+ * predicates instead of wrapping them.
+ *
+ * @author Javapony
+ *
+ */
+public final class CompiledCharPredicate implements CharPredicate {
+
+	private static final int TABLE_LENGTH = (Character.MAX_VALUE + 1) / Long.SIZE;
+
+	/**
+	 * Bit <code>c</code> is set if <code>c</code> in <code>[0; 64)</code> matches.
+	 */
+	private final long ascii0;
+
+	/**
+	 * Bit <code>c - 64</code> is set if <code>c</code> in <code>[64; 128)</code> matches.
+	 */
+	private final long ascii1;
+
+	private volatile long[] table = null;
+	private Supplier<long[]> tableBuilder;
+
+	private CompiledCharPredicate(long ascii0, long ascii1, Supplier<long[]> tableBuilder) {
+		this.ascii0 = ascii0;
+		this.ascii1 = ascii1;
+		this.tableBuilder = tableBuilder;
+	}
+
+	private CompiledCharPredicate(long[] table) {
+		this(table[0], table[1], null);
+		this.table = table;
+	}
+
+	static CompiledCharPredicate compile(CharPredicate predicate) {
+		if (predicate instanceof CompiledCharPredicate) {
+			return (CompiledCharPredicate) predicate;
+		}
+
+		long ascii0 = 0;
+		long ascii1 = 0;
+
+		for (char c = 0; c < 64; ++c) {
+			if (predicate.test(c)) ascii0 |= 1L << c;
+		}
+
+		for (char c = 64; c < 128; ++c) {
+			if (predicate.test(c)) ascii1 |= 1L << c;
+		}
+
+		return new CompiledCharPredicate(ascii0, ascii1, () -> tabulate(predicate));
+	}
+
+	static CompiledCharPredicate forArray(char[] chars) {
+		long[] table = new long[TABLE_LENGTH];
+		for (char c : chars) {
+			table[c >>> 6] |= 1L << c;
+		}
+		return new CompiledCharPredicate(table);
+	}
+
+	static CompiledCharPredicate and(CompiledCharPredicate a, CompiledCharPredicate b) {
+		return new CompiledCharPredicate(
+				a.ascii0 & b.ascii0,
+				a.ascii1 & b.ascii1,
+				() -> {
+					long[] x = a.getTable();
+					long[] y = b.getTable();
+					long[] result = new long[TABLE_LENGTH];
+					for (int i = 0; i < TABLE_LENGTH; ++i) result[i] = x[i] & y[i];
+					return result;
+				}
+		);
+	}
+
+	static CompiledCharPredicate or(CompiledCharPredicate a, CompiledCharPredicate b) {
+		return new CompiledCharPredicate(
+				a.ascii0 | b.ascii0,
+				a.ascii1 | b.ascii1,
+				() -> {
+					long[] x = a.getTable();
+					long[] y = b.getTable();
+					long[] result = new long[TABLE_LENGTH];
+					for (int i = 0; i < TABLE_LENGTH; ++i) result[i] = x[i] | y[i];
+					return result;
+				}
+		);
+	}
+
+	static CompiledCharPredicate negate(CompiledCharPredicate a) {
+		return new CompiledCharPredicate(
+				~a.ascii0,
+				~a.ascii1,
+				() -> {
+					long[] x = a.getTable();
+					long[] result = new long[TABLE_LENGTH];
+					for (int i = 0; i < TABLE_LENGTH; ++i) result[i] = ~x[i];
+					return result;
+				}
+		);
+	}
+
+	private static long[] tabulate(CharPredicate predicate) {
+		long[] result = new long[TABLE_LENGTH];
+
+		char c = 0;
+		do {
+			if (predicate.test(c)) result[c >>> 6] |= 1L << c;
+		} while (c++ != Character.MAX_VALUE);
+
+		return result;
+	}
+
+	private long[] getTable() {
+		long[] result = table;
+		if (result != null) return result;
+
+		synchronized (this) {
+			result = table;
+			if (result == null) {
+				result = tableBuilder.get();
+				table = result;
+				tableBuilder = null;
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * @see ru.windcorp.jputil.chars.CharPredicate#test(char)
+	 */
+	@Override
+	public boolean test(char c) {
+		// Shifts only use the lower 6 bits of c
+		if (c < 64) return (ascii0 >>> c & 1) != 0;
+		if (c < 128) return (ascii1 >>> c & 1) != 0;
+		return (getTable()[c >>> 6] >>> c & 1) != 0;
+	}
+
+}
@@ -14,7 +14,11 @@
  */
 package ru.windcorp.jputil.chars;
 
+import java.io.Reader;
+import java.io.Writer;
 import java.text.CharacterIterator;
+import java.util.HashMap;
+import java.util.Map;
 
 import ru.windcorp.jputil.ArrayUtil;
 import ru.windcorp.jputil.chars.reader.CharReader;
@@ -109,6 +113,46 @@ public class Escaper {
 	private final boolean preferUnicode;
 	private final boolean strict;
 	
+	/*
+	 * Lookup tables
+	 */
+	
+	private static final int TABLE_SIZE = 128;
+	
+	private static final byte PLAIN = 0;
+	private static final byte ESCAPED = 1;
+	private static final byte UNICODE = 2;
+	
+	/**
+	 * Escape class ({@link #PLAIN}, {@link #ESCAPED} or {@link #UNICODE}) of each ASCII character.
+	 */
+	private final byte[] escapeClasses = new byte[TABLE_SIZE];
+	
+	/**
+	 * The character written after {@link #escapeChar} for {@link #ESCAPED} ASCII characters.
+	 */
+	private final char[] escapeReplacements = new char[TABLE_SIZE];
+	
+	/**
+	 * The character written after {@link #escapeChar} for non-ASCII characters that are escaped.
+	 */
+	private final Map<Character, Character> nonAsciiEscapes = new HashMap<>();
+	
+	/**
+	 * Whether each ASCII character is a safe character.
+	 */
+	private final boolean[] unescapable = new boolean[TABLE_SIZE];
+	
+	/**
+	 * The character that an escape sequence for each ASCII character stands for.
+	 */
+	private final char[] unescapeReplacements = new char[TABLE_SIZE];
+	
+	/**
+	 * The character that an escape sequence for each non-ASCII safe character stands for.
+	 */
+	private final Map<Character, Character> nonAsciiUnescapes = new HashMap<>();
+	
 	protected Escaper(
 			char escapeChar, char unicodeEscapeChar,
 			char[] safes, char[] unsafes,
@@ -136,6 +180,43 @@ public class Escaper {
 			if (c == escapeChar) throw new IllegalArgumentException("Unsafe characters contain escape chatacter (escape character is escaped automatically)");
 			if (c == unicodeEscapeChar) throw new IllegalArgumentException("Unsafe characters contain Unicode escape chatacter");
 		}
+		
+		buildTables();
+	}
+	
+	private void buildTables() {
+		if (preferUnicode) {
+			for (char c = 0; c < TABLE_SIZE; ++c) {
+				if (!isRegular(c)) escapeClasses[c] = UNICODE;
+			}
+		}
+		
+		for (int i = 0; i < unsafes.length; ++i) {
+			putEscape(unsafes[i], safes[i]);
+		}
+		putEscape(escapeChar, escapeChar);
+		
+		for (int i = 0; i < safes.length; ++i) {
+			putUnescape(safes[i], unsafes[i]);
+		}
+	}
+	
+	private void putEscape(char unsafe, char safe) {
+		if (unsafe < TABLE_SIZE) {
+			escapeClasses[unsafe] = ESCAPED;
+			escapeReplacements[unsafe] = safe;
+		} else {
+			nonAsciiEscapes.put(unsafe, safe);
+		}
+	}
+	
+	private void putUnescape(char safe, char unsafe) {
+		if (safe < TABLE_SIZE) {
+			unescapable[safe] = true;
+			unescapeReplacements[safe] = unsafe;
+		} else {
+			nonAsciiUnescapes.put(safe, unsafe);
+		}
 	}
 	
 	public static EscaperBuilder create() {
@@ -157,23 +238,30 @@ public class Escaper {
 	}
 	
 	public void escape(char c, CharConsumer output) {
-		if (c == escapeChar) {
-			output.accept(escapeChar);
-			output.accept(escapeChar);
-			return;
+		if (c < TABLE_SIZE) {
+			switch (escapeClasses[c]) {
+			case ESCAPED:
+				output.accept(escapeChar);
+				output.accept(escapeReplacements[c]);
+				return;
+			case UNICODE:
+				escapeAsHex(c, output);
+				return;
+			default:
+				output.accept(c);
+				return;
+			}
 		}
 		
-		int index = ArrayUtil.firstIndexOf(unsafes, c);
+		Character safe = nonAsciiEscapes.isEmpty() ? null : nonAsciiEscapes.get(c);
 		
-		if (index >= 0) {
+		if (safe != null) {
 			output.accept(escapeChar);
-			output.accept(safes[index]);
+			output.accept(safe);
+		} else if (preferUnicode) {
+			escapeAsHex(c, output);
 		} else {
-			if (preferUnicode && !isRegular(c)) {
-				escapeAsHex(c, output);
-			} else {
-				output.accept(c);
-			}
+			output.accept(c);
 		}
 	}
 	
@@ -207,14 +295,18 @@ public class Escaper {
 	}
 	
 	public int getEscapedLength(char c) {
-		if (c == escapeChar || ArrayUtil.firstIndexOf(unsafes, c) >= 0)
-			return 2;
-		else {
-			if (preferUnicode && !isRegular(c))
-				return 6;
-			else
-				return 1;
+		if (c < TABLE_SIZE) {
+			switch (escapeClasses[c]) {
+			case ESCAPED: return 2;
+			case UNICODE: return 6;
+			default:      return 1;
+			}
 		}
+		
+		if (!nonAsciiEscapes.isEmpty() && nonAsciiEscapes.containsKey(c))
+			return 2;
+		else
+			return preferUnicode ? 6 : 1;
 	}
 	
 	/*
@@ -256,10 +348,18 @@ public class Escaper {
 					);
 				}
 				
-				int index = ArrayUtil.firstIndexOf(safes, src.current());
-				if (index >= 0) {
-					src.next();
-					return unsafes[index];
+				char c = src.current();
+				if (c < TABLE_SIZE) {
+					if (unescapable[c]) {
+						src.next();
+						return unescapeReplacements[c];
+					}
+				} else if (!nonAsciiUnescapes.isEmpty()) {
+					Character unsafe = nonAsciiUnescapes.get(c);
+					if (unsafe != null) {
+						src.next();
+						return unsafe;
+					}
 				}
 				
 				if (strict)
@@ -405,18 +505,121 @@ public class Escaper {
 		return result;
 	}
 	
+	/**
+	 * Escapes the string. Returns <code>src</code> itself if no character needs
+	 * to be escaped; otherwise runs of characters between escape sequences are
+	 * copied in bulk.
+	 */
 	public String escape(String src) {
-		StringBuilder result = new StringBuilder(src.length());
-		escape(CharReaders.wrap(src), (CharConsumer) result::append);
+		int length = src.length();
+		int i = skipPlain(src, 0);
+		
+		if (i == length) return src;
+		
+		StringBuilder result = new StringBuilder(length + (length >> 3) + 6);
+		result.append(src, 0, i);
+		escape(src, i, CharConsumers.append(result));
+		
 		return result.toString();
 	}
 	
+	/**
+	 * Escapes the characters and passes the result to <code>output</code>. Runs of
+	 * characters that need no escaping are passed with
+	 * {@link CharConsumer#accept(CharSequence, int, int)}.
+	 */
+	public void escape(CharSequence src, CharConsumer output) {
+		escape(src, 0, output);
+	}
+	
+	private void escape(CharSequence src, int from, CharConsumer output) {
+		int length = src.length();
+		int runStart = from;
+		
+		while (runStart < length) {
+			int runEnd = skipPlain(src, runStart);
+			if (runEnd != runStart) output.accept(src, runStart, runEnd - runStart);
+			
+			if (runEnd == length) break;
+			
+			escape(src.charAt(runEnd), output);
+			runStart = runEnd + 1;
+		}
+	}
+	
+	/**
+	 * @return the index of the first character at or after <code>from</code> that
+	 * needs to be escaped, or <code>src.length()</code>
+	 */
+	private int skipPlain(CharSequence src, int from) {
+		int length = src.length();
+		int i = from;
+		
+		while (i < length && !needsEscaping(src.charAt(i))) {
+			i++;
+		}
+		
+		return i;
+	}
+	
+	/**
+	 * @return <code>false</code> if {@link #escape(char, CharConsumer)} would output
+	 * <code>c</code> as is
+	 */
+	boolean needsEscaping(char c) {
+		if (c < TABLE_SIZE) {
+			return escapeClasses[c] != PLAIN;
+		}
+		
+		return preferUnicode || (!nonAsciiEscapes.isEmpty() && nonAsciiEscapes.containsKey(c));
+	}
+	
+	/**
+	 * Unescapes the string. Returns <code>src</code> itself if it contains no escape
+	 * characters; otherwise runs of characters between escape sequences are copied
+	 * in bulk.
+	 */
 	public String unescape(String src) throws EscapeException {
+		int next = src.indexOf(escapeChar);
+		if (next < 0) return src;
+		
 		StringBuilder result = new StringBuilder(src.length());
-		unescape(CharReaders.wrap(src), (CharConsumer) result::append);
+		CharReader reader = CharReaders.wrap(src);
+		int runStart = 0;
+		
+		do {
+			result.append(src, runStart, next);
+			
+			reader.setPosition(next);
+			result.append(unescapeOneSequence(reader));
+			
+			runStart = reader.getPosition();
+			next = src.indexOf(escapeChar, runStart);
+		} while (next >= 0);
+		
+		result.append(src, runStart, src.length());
 		return result.toString();
 	}
 	
+	/**
+	 * Creates a {@link Writer} that escapes everything written to it and passes
+	 * the result to <code>out</code>.
+	 * @param out the writer to receive escaped characters
+	 * @return a new {@link EscapingWriter}
+	 */
+	public EscapingWriter escapingWriter(Writer out) {
+		return new EscapingWriter(this, out);
+	}
+	
+	/**
+	 * Creates a {@link Reader} that unescapes the characters read from <code>in</code>.
+	 * @param in the reader to read escaped characters from
+	 * @return a new {@link UnescapingReader}
+	 */
+	public UnescapingReader unescapingReader(Reader in) {
+		return new UnescapingReader(this, in);
+	}
+	
 	/*
 	 * Misc
 	 */
@@ -0,0 +1,144 @@
+/*
+ * JPUtil
+ * Copyright (C) 2019  Javapony/OLEGSHA
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package ru.windcorp.jputil.chars;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Objects;
+
+/**
+ * A {@link Writer} that escapes characters with an {@link Escaper} and writes the
+ * result to another writer. Output is collected in an internal buffer and passed on
+ * in blocks; {@link #flush()} and {@link #close()} flush the buffer first.
+ *
+ * @author Javapony
+ * @see Escaper#escapingWriter(Writer)
+ */
+public class EscapingWriter extends Writer {
+
+	protected static final int DEFAULT_BUFFER_SIZE = 8192;
+
+	/**
+	 * The longest sequence {@link Escaper#escape(char, CharConsumer)} produces.
+	 */
+	private static final int MAX_SEQUENCE_LENGTH = 6;
+
+	private final Escaper escaper;
+	private final Writer out;
+
+	private final char[] buffer;
+	private int count = 0;
+
+	private final CharConsumer bufferAppender = this::appendToBuffer;
+
+	public EscapingWriter(Escaper escaper, Writer out, int bufferSize) {
+		this.escaper = Objects.requireNonNull(escaper, "escaper");
+		this.out = Objects.requireNonNull(out, "out");
+
+		if (bufferSize < MAX_SEQUENCE_LENGTH)
+			throw new IllegalArgumentException("bufferSize must be at least " + MAX_SEQUENCE_LENGTH + " (" + bufferSize + ")");
+
+		this.buffer = new char[bufferSize];
+	}
+
+	public EscapingWriter(Escaper escaper, Writer out) {
+		this(escaper, out, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * @see java.io.Writer#write(int)
+	 */
+	@Override
+	public void write(int c) throws IOException {
+		ensureCapacity(MAX_SEQUENCE_LENGTH);
+		escaper.escape((char) c, bufferAppender);
+	}
+
+	/**
+	 * @see java.io.Writer#write(char[], int, int)
+	 */
+	@Override
+	public void write(char[] cbuf, int off, int len) throws IOException {
+		int end = off + len;
+		for (int i = off; i < end; ++i) {
+			ensureCapacity(MAX_SEQUENCE_LENGTH);
+
+			char c = cbuf[i];
+			if (escaper.needsEscaping(c)) {
+				escaper.escape(c, bufferAppender);
+			} else {
+				buffer[count++] = c;
+			}
+		}
+	}
+
+	/**
+	 * @see java.io.Writer#write(java.lang.String, int, int)
+	 */
+	@Override
+	public void write(String str, int off, int len) throws IOException {
+		int end = off + len;
+		for (int i = off; i < end; ++i) {
+			ensureCapacity(MAX_SEQUENCE_LENGTH);
+
+			char c = str.charAt(i);
+			if (escaper.needsEscaping(c)) {
+				escaper.escape(c, bufferAppender);
+			} else {
+				buffer[count++] = c;
+			}
+		}
+	}
+
+	private void appendToBuffer(char c) {
+		buffer[count++] = c;
+	}
+
+	private void ensureCapacity(int wanted) throws IOException {
+		if (buffer.length - count < wanted) flushBuffer();
+	}
+
+	private void flushBuffer() throws IOException {
+		if (count == 0) return;
+		out.write(buffer, 0, count);
+		count = 0;
+	}
+
+	/**
+	 * @see java.io.Writer#flush()
+	 */
+	@Override
+	public void flush() throws IOException {
+		flushBuffer();
+		out.flush();
+	}
+
+	/**
+	 * Flushes the buffer and closes the underlying writer.
+	 * @see java.io.Writer#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			flushBuffer();
+		} finally {
+			out.close();
+		}
+	}
+
+}
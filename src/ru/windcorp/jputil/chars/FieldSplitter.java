@@ -0,0 +1,184 @@
+/*
+ * JPUtil
+ * Copyright (C) 2019  Javapony/OLEGSHA
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package ru.windcorp.jputil.chars;
+
+import java.nio.CharBuffer;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+
+/**
+ * Splits a {@link CharSequence} into fields lazily. Fields are found one at a time as
+ * the splitter advances, so callers that only need a few fields never scan the rest
+ * of the input.
+ * <p>
+ * Fields are the same as those returned by {@link StringUtil#split(String, char)}:
+ * <code>n</code> separators produce <code>n + 1</code> fields, some of which may be empty.
+ * {@link #next()} returns a read-only view of the field; {@link #advance()} only moves
+ * the bounds reported by {@link #getStart()} and {@link #getEnd()} and allocates nothing.
+ *
+ * @author Javapony
+ * @see StringUtil#splitLazily(CharSequence, char)
+ * @see StringUtil#splitLazily(CharSequence, CharPredicate)
+ */
+public class FieldSplitter implements Iterator<CharSequence> {
+
+	private final CharSequence src;
+
+	private final char separatorChar;
+
+	/**
+	 * The separator predicate, or <code>null</code> if {@link #separatorChar} is used.
+	 */
+	private final CharPredicate separator;
+
+	/**
+	 * Bounds of the current field.
+	 */
+	private int start = -1;
+	private int end = -1;
+
+	/**
+	 * The start of the next field, or -1 if there are no more fields.
+	 */
+	private int nextStart = 0;
+
+	public FieldSplitter(CharSequence src, char separator) {
+		this.src = Objects.requireNonNull(src, "src");
+		this.separatorChar = separator;
+		this.separator = null;
+	}
+
+	public FieldSplitter(CharSequence src, CharPredicate separator) {
+		this.src = Objects.requireNonNull(src, "src");
+		this.separatorChar = 0;
+		this.separator = Objects.requireNonNull(separator, "separator");
+	}
+
+	/**
+	 * Moves to the next field.
+	 * @return <code>false</code> if there are no more fields
+	 */
+	public boolean advance() {
+		if (nextStart < 0) return false;
+
+		start = nextStart;
+		end = findSeparator(start);
+
+		if (end < 0) {
+			end = src.length();
+			nextStart = -1;
+		} else {
+			nextStart = end + 1;
+		}
+
+		return true;
+	}
+
+	private int findSeparator(int from) {
+		if (separator == null) {
+			if (src instanceof String) {
+				return ((String) src).indexOf(separatorChar, from);
+			}
+
+			for (int i = from; i < src.length(); ++i) {
+				if (src.charAt(i) == separatorChar) return i;
+			}
+			return -1;
+		}
+
+		for (int i = from; i < src.length(); ++i) {
+			if (separator.test(src.charAt(i))) return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * @see java.util.Iterator#hasNext()
+	 */
+	@Override
+	public boolean hasNext() {
+		return nextStart >= 0;
+	}
+
+	/**
+	 * Moves to the next field and returns a read-only view of it.
+	 * @see java.util.Iterator#next()
+	 */
+	@Override
+	public CharSequence next() {
+		if (!advance()) {
+			throw new NoSuchElementException();
+		}
+
+		return CharBuffer.wrap(src, start, end);
+	}
+
+	/**
+	 * Moves to the next field and returns it as a {@link String}.
+	 * @return the next field
+	 * @throws NoSuchElementException if there are no more fields
+	 */
+	public String nextString() {
+		if (!advance()) {
+			throw new NoSuchElementException();
+		}
+
+		return src.subSequence(start, end).toString();
+	}
+
+	/**
+	 * @return the index of the first character of the current field
+	 * @throws IllegalStateException if the splitter has not been advanced yet
+	 */
+	public int getStart() {
+		checkStarted();
+		return start;
+	}
+
+	/**
+	 * @return the index after the last character of the current field
+	 * @throws IllegalStateException if the splitter has not been advanced yet
+	 */
+	public int getEnd() {
+		checkStarted();
+		return end;
+	}
+
+	private void checkStarted() {
+		if (start < 0)
+			throw new IllegalStateException("No current field: advance() or next() has not been called");
+	}
+
+	public CharSequence getSource() {
+		return src;
+	}
+
+	/**
+	 * @return a sequential {@link Spliterator} over the remaining fields
+	 */
+	public Spliterator<CharSequence> spliterator() {
+		return Spliterators.spliteratorUnknownSize(
+				this,
+				Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE
+		);
+	}
+
+}
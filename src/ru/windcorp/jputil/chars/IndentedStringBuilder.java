@@ -14,9 +14,39 @@
  */
 package ru.windcorp.jputil.chars;
 
-public class IndentedStringBuilder {
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 
-	private final StringBuilder sb = new StringBuilder();
+/**
+ * Builds text with indented lines. By default the text is accumulated in memory and
+ * returned by {@link #toString()}.
+ * <p>
+ * Instances created with an {@link Appendable} stream the text to it instead: characters
+ * are collected in a buffer that is passed on whenever it reaches the buffer size, and
+ * {@link #flush()} or {@link #close()} pass on the rest. {@link IOException}s are rethrown
+ * as {@link UncheckedIOException}s.
+ *
+ * @author Javapony
+ */
+public class IndentedStringBuilder implements Flushable, Closeable {
+	
+	protected static final int DEFAULT_BUFFER_SIZE = 8192;
+
+	private final StringBuilder sb;
+	
+	/**
+	 * The destination of the text, or <code>null</code> if the text is kept in {@link #sb}.
+	 */
+	private final Appendable out;
+	private final int bufferSize;
+	
+	/**
+	 * Used to pass the buffer to a {@link Writer}, allocated on first use.
+	 */
+	private char[] transferBuffer = null;
 	
 	private int indentLevel = 0;
 	private boolean indentApplied = false;
@@ -27,6 +57,35 @@ public class IndentedStringBuilder {
 	
 	public IndentedStringBuilder(char[] indentFill) {
 		this.indentFill = indentFill;
+		this.sb = new StringBuilder();
+		this.out = null;
+		this.bufferSize = 0;
+	}
+	
+	/**
+	 * Creates a builder that streams its text to <code>out</code>.
+	 * @param out the destination of the text
+	 * @param bufferSize the amount of characters to collect before passing them on
+	 * @param indentFill the characters to indent with for each indent level
+	 */
+	public IndentedStringBuilder(Appendable out, int bufferSize, char[] indentFill) {
+		if (out == null)
+			throw new IllegalArgumentException(new NullPointerException());
+		if (bufferSize <= 0)
+			throw new IllegalArgumentException("bufferSize must be positive (" + bufferSize + ")");
+		
+		this.indentFill = indentFill;
+		this.sb = new StringBuilder(bufferSize);
+		this.out = out;
+		this.bufferSize = bufferSize;
+	}
+	
+	public IndentedStringBuilder(Appendable out, String indentFill) {
+		this(out, DEFAULT_BUFFER_SIZE, indentFill.toCharArray());
+	}
+	
+	public IndentedStringBuilder(Appendable out) {
+		this(out, DEFAULT_BUFFER_SIZE, new char[] {' '});
 	}
 	
 	public IndentedStringBuilder(String indentFill) {
@@ -41,10 +100,18 @@ public class IndentedStringBuilder {
 		this(new char[] {' '});
 	}
 	
+	/**
+	 * Returns the text built so far. If this builder streams to an {@link Appendable},
+	 * only the text that has not been passed on yet is returned.
+	 */
 	@Override
 	public String toString() {
 		return sb.toString();
 	}
+	
+	public boolean isStreaming() {
+		return out != null;
+	}
 
 	public int getIndentLevel() {
 		return indentLevel;
@@ -93,40 +160,123 @@ public class IndentedStringBuilder {
 		}
 		
 		String str = x.toString();
-		int newLines = StringUtil.count(str, '\n');
-		
-		if (newLines == 0) {
-			appendRaw(str);
-			return this;
-		}
-		
-		String[] lines = StringUtil.split(str, '\n', newLines + 1);
-		appendRaw(lines[0]);
+		int lineStart = 0;
+		int lineEnd;
 		
-		for (int i = 1; i < lines.length; ++i) {
+		while ((lineEnd = str.indexOf('\n', lineStart)) >= 0) {
+			appendRaw(str, lineStart, lineEnd);
 			newLine();
-			appendRaw(lines[i]);
+			lineStart = lineEnd + 1;
 		}
 		
+		appendRaw(str, lineStart, str.length());
 		return this;
 	}
 	
 	public IndentedStringBuilder appendRaw(String str) {
-		if (str.isEmpty()) return this; // Do not append indent
+		return appendRaw(str, 0, str.length());
+	}
+	
+	public IndentedStringBuilder appendRaw(CharSequence str, int start, int end) {
+		if (start == end) return this; // Do not append indent
 		
 		if (!indentApplied) {
 			sb.append(indent);
 			indentApplied = true;
 		}
 		
-		sb.append(str);
+		if (out != null && sb.length() + (end - start) > bufferSize) {
+			flushBuffer();
+			
+			if (end - start > bufferSize) {
+				// Too long to buffer
+				try {
+					out.append(str, start, end);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				return this;
+			}
+		}
+		
+		sb.append(str, start, end);
 		return this;
 	}
 	
 	public IndentedStringBuilder newLine() {
 		sb.append('\n');
 		indentApplied = false;
+		
+		if (out != null && sb.length() >= bufferSize) {
+			flushBuffer();
+		}
+		
 		return this;
 	}
 	
+	private void flushBuffer() {
+		if (sb.length() == 0) return;
+		
+		try {
+			if (out instanceof Writer) {
+				if (transferBuffer == null) {
+					transferBuffer = new char[Math.max(bufferSize, sb.length())];
+				} else if (transferBuffer.length < sb.length()) {
+					transferBuffer = new char[sb.length()];
+				}
+				
+				sb.getChars(0, sb.length(), transferBuffer, 0);
+				((Writer) out).write(transferBuffer, 0, sb.length());
+			} else {
+				out.append(sb);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		
+		sb.setLength(0);
+	}
+	
+	/**
+	 * Passes the buffered text to the {@link Appendable} and flushes it if it is {@link Flushable}.
+	 * Does nothing if this builder does not stream its text.
+	 * @see java.io.Flushable#flush()
+	 */
+	@Override
+	public void flush() {
+		if (out == null) return;
+		
+		flushBuffer();
+		
+		if (out instanceof Flushable) {
+			try {
+				((Flushable) out).flush();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+	
+	/**
+	 * Flushes this builder and closes the {@link Appendable} if it is {@link Closeable}.
+	 * Does nothing if this builder does not stream its text.
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() {
+		if (out == null) return;
+		
+		try {
+			flushBuffer();
+		} finally {
+			if (out instanceof Closeable) {
+				try {
+					((Closeable) out).close();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+		}
+	}
+	
 }
@@ -0,0 +1,161 @@
+/*
+ * JPUtil
+ * Copyright (C) 2019  Javapony/OLEGSHA
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package ru.windcorp.jputil.chars;
+
+import java.util.Arrays;
+
+/**
+ * A bounded cache of {@link String}s looked up by character range. Interning a range
+ * that equals a cached string returns the cached instance without creating a new
+ * {@link String}, so repeated words share one instance.
+ * <p>
+ * The cache is a fixed-size table. Each string may be stored in one of two adjacent slots;
+ * a new string takes the first slot, moving its previous occupant to the second one and
+ * evicting the string there. Instances may be shared between threads: a race can only
+ * cause a miss, never a wrong result.
+ *
+ * @author Javapony
+ * @see WordReader#setInterner(StringInterner)
+ */
+public class StringInterner {
+
+	private final String[] table;
+	private final int mask;
+
+	/**
+	 * @param capacity the amount of strings to keep, rounded up to a power of two, at least 2
+	 */
+	public StringInterner(int capacity) {
+		if (capacity <= 0 || capacity > (1 << 30))
+			throw new IllegalArgumentException("capacity must be in [1; 2^30] (" + capacity + ")");
+		if (capacity == 1) capacity = 2;
+
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity) size <<= 1;
+
+		this.table = new String[size];
+		this.mask = size - 1;
+	}
+
+	/**
+	 * Returns a string equal to <code>chars[offset; offset + length)</code>, taking it from
+	 * the cache if possible.
+	 * @param chars the array that contains the characters
+	 * @param offset the index of the first character
+	 * @param length the amount of characters
+	 * @return a string with the given characters
+	 */
+	public String intern(char[] chars, int offset, int length) {
+		int hash = 0;
+		for (int i = offset; i < offset + length; ++i) {
+			hash = 31 * hash + chars[i];
+		}
+
+		int slot = spread(hash);
+		String cached = table[slot];
+		if (cached != null && matches(cached, hash, chars, offset, length)) {
+			return cached;
+		}
+
+		String other = table[slot ^ 1];
+		if (other != null && matches(other, hash, chars, offset, length)) {
+			return other;
+		}
+
+		String result = new String(chars, offset, length);
+		store(slot, cached, result);
+		return result;
+	}
+
+	/**
+	 * Returns a string equal to <code>seq[start; end)</code>, taking it from the cache if possible.
+	 * @param seq the sequence that contains the characters
+	 * @param start the index of the first character
+	 * @param end the index after the last character
+	 * @return a string with the given characters
+	 */
+	public String intern(CharSequence seq, int start, int end) {
+		int hash = 0;
+		for (int i = start; i < end; ++i) {
+			hash = 31 * hash + seq.charAt(i);
+		}
+
+		int slot = spread(hash);
+		String cached = table[slot];
+		if (cached != null && matches(cached, hash, seq, start, end)) {
+			return cached;
+		}
+
+		String other = table[slot ^ 1];
+		if (other != null && matches(other, hash, seq, start, end)) {
+			return other;
+		}
+
+		String result = seq.subSequence(start, end).toString();
+		store(slot, cached, result);
+		return result;
+	}
+
+	/**
+	 * Puts the string into its slot, moving the previous string of the slot to the other
+	 * slot of the pair.
+	 */
+	private void store(int slot, String previous, String string) {
+		if (previous != null) {
+			table[slot ^ 1] = previous;
+		}
+		table[slot] = string;
+	}
+
+	private int spread(int hash) {
+		return (hash ^ (hash >>> 16)) & mask;
+	}
+
+	// The hash is the same as String.hashCode(), which strings cache
+	private static boolean matches(String cached, int hash, char[] chars, int offset, int length) {
+		if (cached.length() != length || cached.hashCode() != hash) return false;
+
+		for (int i = 0; i < length; ++i) {
+			if (cached.charAt(i) != chars[offset + i]) return false;
+		}
+
+		return true;
+	}
+
+	private static boolean matches(String cached, int hash, CharSequence seq, int start, int end) {
+		if (cached.length() != end - start || cached.hashCode() != hash) return false;
+
+		for (int i = start; i < end; ++i) {
+			if (cached.charAt(i - start) != seq.charAt(i)) return false;
+		}
+
+		return true;
+	}
+
+	public int getCapacity() {
+		return table.length;
+	}
+
+	/**
+	 * Removes all strings from the cache.
+	 */
+	public void clear() {
+		Arrays.fill(table, null);
+	}
+
+}
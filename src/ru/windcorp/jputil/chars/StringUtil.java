@@ -18,12 +18,24 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 import java.util.function.IntFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class StringUtil {
 	
@@ -53,14 +65,12 @@ public class StringUtil {
 			return empty;
 		}
 		
-		StringBuilder sb = new StringBuilder(array[0] == null ? nullPlaceholder : array[0].toString());
-		
-		for (int i = 1; i < array.length; ++i) {
-			sb.append(separator);
-			sb.append(array[i] == null ? nullPlaceholder : array[i].toString());
+		String[] strings = new String[array.length];
+		for (int i = 0; i < array.length; ++i) {
+			strings[i] = elementToString(array[i], nullPlaceholder);
 		}
 		
-		return sb.toString();
+		return String.join(separator, strings);
 	}
 	
 	public static <T> String arrayToString(T[] array, String separator) {
@@ -71,6 +81,54 @@ public class StringUtil {
 		return arrayToString(array, DEFAULT_SEPARATOR);
 	}
 	
+	/**
+	 * Appends the elements of the array as {@link #arrayToString(Object[], String, String, String, String)} would
+	 * return them, without creating the resulting {@link String}.
+	 * {@link IOException}s are rethrown as {@link UncheckedIOException}s.
+	 * @param out the object to append to
+	 * @return <code>out</code>
+	 */
+	public static <A extends Appendable> A appendTo(
+			A out,
+			Object[] array,
+			String separator,
+			String empty,
+			String nullPlaceholder,
+			String nullArray
+	) {
+		
+		if (separator == null) {
+			throw new IllegalArgumentException(new NullPointerException());
+		}
+		
+		try {
+			if (array == null) {
+				out.append(nullArray);
+			} else if (array.length == 0) {
+				out.append(empty);
+			} else {
+				appendElement(out, array[0], nullPlaceholder);
+				
+				for (int i = 1; i < array.length; ++i) {
+					out.append(separator);
+					appendElement(out, array[i], nullPlaceholder);
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		
+		return out;
+	}
+	
+	public static <A extends Appendable> A appendTo(A out, Object[] array, String separator) {
+		return appendTo(out, array, separator, EMPTY_PLACEHOLDER, NULL_PLACEHOLDER, "[null array]");
+	}
+	
+	public static <A extends Appendable> A appendTo(A out, Object[] array) {
+		return appendTo(out, array, DEFAULT_SEPARATOR);
+	}
+	
 	public static String iteratorToString(
 			Iterator<?> iterator,
 			String separator,
@@ -91,16 +149,7 @@ public class StringUtil {
 			return empty;
 		}
 		
-		Object obj = iterator.next();
-		StringBuilder sb = new StringBuilder(obj == null ? nullPlaceholder : obj.toString());
-		
-		while (iterator.hasNext()) {
-			obj = iterator.next();
-			sb.append(separator);
-			sb.append(obj == null ? nullPlaceholder : obj.toString());
-		}
-		
-		return sb.toString();
+		return appendTo(new StringBuilder(), iterator, separator, empty, nullPlaceholder, nullIterator).toString();
 	}
 	
 	public static String iteratorToString(Iterator<?> iterator, String separator) {
@@ -111,6 +160,55 @@ public class StringUtil {
 		return iteratorToString(iterator, DEFAULT_SEPARATOR);
 	}
 	
+	/**
+	 * Appends the remaining elements of the iterator as
+	 * {@link #iteratorToString(Iterator, String, String, String, String)} would return them,
+	 * without creating the resulting {@link String}.
+	 * {@link IOException}s are rethrown as {@link UncheckedIOException}s.
+	 * @param out the object to append to
+	 * @return <code>out</code>
+	 */
+	public static <A extends Appendable> A appendTo(
+			A out,
+			Iterator<?> iterator,
+			String separator,
+			String empty,
+			String nullPlaceholder,
+			String nullIterator
+	) {
+		
+		if (separator == null) {
+			throw new IllegalArgumentException(new NullPointerException());
+		}
+		
+		try {
+			if (iterator == null) {
+				out.append(nullIterator);
+			} else if (!iterator.hasNext()) {
+				out.append(empty);
+			} else {
+				appendElement(out, iterator.next(), nullPlaceholder);
+				
+				while (iterator.hasNext()) {
+					out.append(separator);
+					appendElement(out, iterator.next(), nullPlaceholder);
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		
+		return out;
+	}
+	
+	public static <A extends Appendable> A appendTo(A out, Iterator<?> iterator, String separator) {
+		return appendTo(out, iterator, separator, EMPTY_PLACEHOLDER, NULL_PLACEHOLDER, "[null iterator]");
+	}
+	
+	public static <A extends Appendable> A appendTo(A out, Iterator<?> iterator) {
+		return appendTo(out, iterator, DEFAULT_SEPARATOR);
+	}
+	
 	public static String iterableToString(
 			Iterable<?> iterable,
 			String separator,
@@ -127,6 +225,21 @@ public class StringUtil {
 			return nullIterable;
 		}
 		
+		if (iterable instanceof Collection) {
+			Collection<?> collection = (Collection<?>) iterable;
+			
+			if (collection.isEmpty()) {
+				return empty;
+			}
+			
+			List<String> strings = new ArrayList<>(collection.size());
+			for (Object element : collection) {
+				strings.add(elementToString(element, nullPlaceholder));
+			}
+			
+			return String.join(separator, strings);
+		}
+		
 		return iteratorToString(iterable.iterator(), separator, empty, nullPlaceholder, nullIterable);
 	}
 	
@@ -138,6 +251,38 @@ public class StringUtil {
 		return iterableToString(iterable, DEFAULT_SEPARATOR);
 	}
 	
+	/**
+	 * Appends the elements of the iterable as
+	 * {@link #iterableToString(Iterable, String, String, String, String)} would return them,
+	 * without creating the resulting {@link String}.
+	 * {@link IOException}s are rethrown as {@link UncheckedIOException}s.
+	 * @param out the object to append to
+	 * @return <code>out</code>
+	 */
+	public static <A extends Appendable> A appendTo(
+			A out,
+			Iterable<?> iterable,
+			String separator,
+			String empty,
+			String nullPlaceholder,
+			String nullIterable
+	) {
+		
+		if (iterable == null) {
+			return appendTo(out, (Iterator<?>) null, separator, empty, nullPlaceholder, nullIterable);
+		}
+		
+		return appendTo(out, iterable.iterator(), separator, empty, nullPlaceholder, nullIterable);
+	}
+	
+	public static <A extends Appendable> A appendTo(A out, Iterable<?> iterable, String separator) {
+		return appendTo(out, iterable, separator, EMPTY_PLACEHOLDER, NULL_PLACEHOLDER, "[null iterable]");
+	}
+	
+	public static <A extends Appendable> A appendTo(A out, Iterable<?> iterable) {
+		return appendTo(out, iterable, DEFAULT_SEPARATOR);
+	}
+	
 	public static <T> String supplierToString(
 			IntFunction<T> supplier,
 			int length,
@@ -152,61 +297,91 @@ public class StringUtil {
 		if (length == 0) return empty;
 		
 		if (length > 0) {
-			return supplierToStringExactly(
-					supplier,
-					length,
-					separator,
-					nullPlaceholder
-			);
+			String[] strings = new String[length];
+			for (int i = 0; i < length; ++i) {
+				strings[i] = elementToString(supplier.apply(i), nullPlaceholder);
+			}
+			
+			return String.join(separator, strings);
 		} else {
-			return supplierToStringUntilNull(
-					supplier,
-					separator,
-					empty
-			);
+			return appendTo(new StringBuilder(), supplier, length, separator, empty, nullPlaceholder, nullSupplier)
+					.toString();
 		}
 		
 	}
-
-	private static <T> String supplierToStringExactly(
-			IntFunction<T> supplier,
+	
+	/**
+	 * Appends the elements of the supplier as
+	 * {@link #supplierToString(IntFunction, int, String, String, String, String)} would return them,
+	 * without creating the resulting {@link String}.
+	 * {@link IOException}s are rethrown as {@link UncheckedIOException}s.
+	 * @param out the object to append to
+	 * @return <code>out</code>
+	 */
+	public static <A extends Appendable> A appendTo(
+			A out,
+			IntFunction<?> supplier,
 			int length,
 			String separator,
-			String nullPlaceholder
+			String empty,
+			String nullPlaceholder,
+			String nullSupplier
 	) {
-		T element = supplier.apply(0);
 		
-		StringBuilder sb = new StringBuilder(element == null ? nullPlaceholder : element.toString());
+		if (separator == null) throw new IllegalArgumentException(new NullPointerException());
 		
-		for (int i = 1; i < length; ++i) {
-			sb.append(separator);
-			element = supplier.apply(i);
-			sb.append(element == null ? nullPlaceholder : element.toString());
+		try {
+			if (supplier == null) {
+				out.append(nullSupplier);
+			} else if (length == 0) {
+				out.append(empty);
+			} else if (length > 0) {
+				appendSupplierExactly(out, supplier, length, separator, nullPlaceholder);
+			} else {
+				appendSupplierUntilNull(out, supplier, separator, empty);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
 		}
 		
-		return sb.toString();
+		return out;
+	}
+
+	private static void appendSupplierExactly(
+			Appendable out,
+			IntFunction<?> supplier,
+			int length,
+			String separator,
+			String nullPlaceholder
+	) throws IOException {
+		appendElement(out, supplier.apply(0), nullPlaceholder);
+		
+		for (int i = 1; i < length; ++i) {
+			out.append(separator);
+			appendElement(out, supplier.apply(i), nullPlaceholder);
+		}
 	}
 	
-	private static <T> String supplierToStringUntilNull(
-			IntFunction<T> supplier,
+	private static void appendSupplierUntilNull(
+			Appendable out,
+			IntFunction<?> supplier,
 			String separator,
 			String empty
-	) {
-		T element = supplier.apply(0);
+	) throws IOException {
+		Object element = supplier.apply(0);
 
 		if (element == null) {
-			return empty;
+			out.append(empty);
+			return;
 		}
 		
-		StringBuilder sb = new StringBuilder(element.toString());
+		appendElement(out, element, null);
 		
 		int i = 0;
 		while ((element = supplier.apply(i++)) != null) {
-			sb.append(separator);
-			sb.append(element);
+			out.append(separator);
+			appendElement(out, element, null);
 		}
-		
-		return sb.toString();
 	}
 
 	public static String supplierToString(IntFunction<?> supplier, int length, String separator) {
@@ -225,6 +400,36 @@ public class StringUtil {
 		return supplierToString(supplier, -1, DEFAULT_SEPARATOR);
 	}
 	
+	public static <A extends Appendable> A appendTo(A out, IntFunction<?> supplier, int length, String separator) {
+		return appendTo(out, supplier, length, separator, EMPTY_PLACEHOLDER, NULL_PLACEHOLDER, "[null supplier]");
+	}
+	
+	public static <A extends Appendable> A appendTo(A out, IntFunction<?> supplier, String separator) {
+		return appendTo(out, supplier, -1, separator);
+	}
+	
+	public static <A extends Appendable> A appendTo(A out, IntFunction<?> supplier, int length) {
+		return appendTo(out, supplier, length, DEFAULT_SEPARATOR);
+	}
+	
+	public static <A extends Appendable> A appendTo(A out, IntFunction<?> supplier) {
+		return appendTo(out, supplier, -1, DEFAULT_SEPARATOR);
+	}
+	
+	private static String elementToString(Object element, String nullPlaceholder) {
+		return String.valueOf(element == null ? nullPlaceholder : element.toString());
+	}
+	
+	private static void appendElement(Appendable out, Object element, String nullPlaceholder) throws IOException {
+		if (element == null) {
+			out.append(nullPlaceholder);
+		} else if (element instanceof CharSequence) {
+			out.append((CharSequence) element);
+		} else {
+			out.append(element.toString());
+		}
+	}
+	
 	public static byte[] toJavaByteArray(String str) {
 		char[] chars = str.toCharArray();
 		byte[] bytes = new byte[chars.length];
@@ -236,15 +441,47 @@ public class StringUtil {
 		return bytes;
 	}
 	
+	/**
+	 * The SIMD scanner used to count characters in strings, or <code>null</code> if
+	 * <code>jdk.incubator.vector</code> is not available. Copying the string for the scalar
+	 * scanner is slower than {@link String#indexOf(int, int)}, so it is not used here.
+	 */
+	private static final CharScanner VECTOR_SCANNER =
+			CharScanner.getInstance() == CharScanner.getScalar() ? null : CharScanner.getInstance();
+	
+	private static final int SCAN_CHUNK_SIZE = 1024;
+	private static final ThreadLocal<char[]> SCAN_CHUNK = ThreadLocal.withInitial(() -> new char[SCAN_CHUNK_SIZE]);
+	
+	/**
+	 * Counts the characters of <code>src</code> contained in <code>targets</code> with
+	 * {@link #VECTOR_SCANNER}, copying the string into a reused buffer one chunk at a time.
+	 */
+	private static int countWithScanner(String src, char[] targets) {
+		char[] chunk = SCAN_CHUNK.get();
+		int result = 0;
+		
+		for (int start = 0; start < src.length(); start += chunk.length) {
+			int end = Math.min(start + chunk.length, src.length());
+			src.getChars(start, end, chunk, 0);
+			result += VECTOR_SCANNER.countAny(chunk, 0, end - start, targets);
+		}
+		
+		return result;
+	}
+	
 	public static int count(String src, char target) {
-		int i = 0;
-		for (char c : src.toCharArray()) {
-			if (c == target) {
-				++i;
-			}
+		if (VECTOR_SCANNER != null) {
+			return countWithScanner(src, new char[] { target });
 		}
 		
-		return i;
+		int result = 0;
+		
+		// String.indexOf(int, int) is a JVM intrinsic that scans several characters at once
+		for (int i = src.indexOf(target); i >= 0; i = src.indexOf(target, i + 1)) {
+			++result;
+		}
+		
+		return result;
 	}
 	
 	public static String[] split(String src, char separator) {
@@ -259,33 +496,80 @@ public class StringUtil {
 		String[] result = new String[arrayLength];
 		
 		int resultIndex = 0;
-		StringBuilder sb = new StringBuilder();
-		for (char c : src.toCharArray()) {
-			if (c == separator && (resultIndex + 1) < arrayLength) {
-				result[resultIndex] = resetStringBuilder(sb);
-				++resultIndex;
-			} else {
-				sb.append(c);
-			}
+		int start = 0;
+		int next;
+		
+		while ((resultIndex + 1) < arrayLength && (next = src.indexOf(separator, start)) >= 0) {
+			result[resultIndex] = src.substring(start, next);
+			++resultIndex;
+			start = next + 1;
 		}
 		
-		result[resultIndex] = sb.toString();
+		result[resultIndex] = src.substring(start);
 		
 		return result;
 	}
 	
-	public static int count(String src, char... target) {
-		int i = 0;
-		for (char c : src.toCharArray()) {
-			for (char t : target) {
+	private static final int INDEX_OF_ANY_PROBE = 4;
+	
+	/**
+	 * Finds the first occurrence of any of the given characters. Each target is searched
+	 * for with {@link String#indexOf(int, int)}, and its next occurrence is remembered in
+	 * <code>next</code>, so a series of searches with increasing <code>from</code> scans
+	 * the string once per target.
+	 * @param next the positions found by previous searches, created with {@link #newIndexCache(char[])}
+	 * @return the index of the first character in <code>src</code> at or after <code>from</code>
+	 * that is contained in <code>targets</code>, or -1 if none found
+	 */
+	private static int indexOfAny(String src, char[] targets, int[] next, int from) {
+		// Close matches are found faster without starting a scan for each target
+		int probeEnd = Math.min(from + INDEX_OF_ANY_PROBE, src.length());
+		for (int i = from; i < probeEnd; ++i) {
+			char c = src.charAt(i);
+			for (char t : targets) {
 				if (c == t) {
-					++i;
-					break;
+					return i;
 				}
 			}
 		}
+		from = probeEnd;
 		
-		return i;
+		int result = Integer.MAX_VALUE;
+		
+		for (int k = 0; k < targets.length; ++k) {
+			int index = next[k];
+			
+			if (index < from) {
+				index = src.indexOf(targets[k], from);
+				if (index < 0) index = Integer.MAX_VALUE;
+				next[k] = index;
+			}
+			
+			if (index < result) result = index;
+		}
+		
+		return result == Integer.MAX_VALUE ? -1 : result;
+	}
+	
+	private static int[] newIndexCache(char[] targets) {
+		int[] result = new int[targets.length];
+		Arrays.fill(result, -1);
+		return result;
+	}
+	
+	public static int count(String src, char... target) {
+		if (VECTOR_SCANNER != null) {
+			return countWithScanner(src, target);
+		}
+		
+		int[] next = newIndexCache(target);
+		int result = 0;
+		
+		for (int i = indexOfAny(src, target, next, 0); i >= 0; i = indexOfAny(src, target, next, i + 1)) {
+			++result;
+		}
+		
+		return result;
 	}
 	
 	public static String[] split(String src, char... separator) {
@@ -299,25 +583,18 @@ public class StringUtil {
 		
 		String[] result = new String[arrayLength];
 		
+		int[] cache = newIndexCache(separator);
 		int resultIndex = 0;
-		StringBuilder sb = new StringBuilder();
+		int start = 0;
+		int next;
 		
-		charLoop:
-		for (char c : src.toCharArray()) {
-			if ((resultIndex + 1) < arrayLength) {
-				for (char h : separator) {
-					if (c == h) {
-						result[resultIndex] = resetStringBuilder(sb);
-						++resultIndex;
-						continue charLoop;
-					}
-				}
-			}
-			
-			sb.append(c);
+		while ((resultIndex + 1) < arrayLength && (next = indexOfAny(src, separator, cache, start)) >= 0) {
+			result[resultIndex] = src.substring(start, next);
+			++resultIndex;
+			start = next + 1;
 		}
 		
-		result[resultIndex] = sb.toString();
+		result[resultIndex] = src.substring(start);
 		
 		return result;
 	}
@@ -365,28 +642,87 @@ public class StringUtil {
 		return result;
 	}
 	
+	/**
+	 * Splits <code>src</code> lazily. Fields are the same as those returned by
+	 * {@link #split(String, char)}.
+	 * @see FieldSplitter
+	 */
+	public static FieldSplitter splitLazily(CharSequence src, char separator) {
+		return new FieldSplitter(src, separator);
+	}
+	
+	/**
+	 * Splits <code>src</code> lazily. Fields are the same as those returned by
+	 * {@link #split(String, CharPredicate)}.
+	 * @see FieldSplitter
+	 */
+	public static FieldSplitter splitLazily(CharSequence src, CharPredicate separator) {
+		return new FieldSplitter(src, separator);
+	}
+	
+	/**
+	 * Finds the fields that {@link #split(String, char, int)} would return for
+	 * <code>arrayLength = ends.length</code> without creating them. Field <code>i</code>
+	 * ends at <code>ends[i]</code> (exclusive) and starts at <code>ends[i - 1] + 1</code>,
+	 * or at 0 for the first field.
+	 * @param src the sequence to split
+	 * @param separator the separator character
+	 * @param ends the array to fill with field ends
+	 * @return the amount of fields found
+	 */
+	public static int splitIndices(CharSequence src, char separator, int[] ends) {
+		return splitIndices(new FieldSplitter(src, separator), ends);
+	}
+	
+	/**
+	 * Finds the fields that {@link #split(String, int, CharPredicate)} would return for
+	 * <code>arrayLength = ends.length</code> without creating them.
+	 * @see #splitIndices(CharSequence, char, int[])
+	 */
+	public static int splitIndices(CharSequence src, CharPredicate separator, int[] ends) {
+		return splitIndices(new FieldSplitter(src, separator), ends);
+	}
+	
+	private static int splitIndices(FieldSplitter splitter, int[] ends) {
+		int fields = 0;
+		
+		while (fields < ends.length && splitter.advance()) {
+			ends[fields++] = splitter.getEnd();
+		}
+		
+		if (fields == ends.length && fields != 0) {
+			// The last field takes the rest of the input
+			ends[fields - 1] = splitter.getSource().length();
+		}
+		
+		return fields;
+	}
+	
 	private static IllegalArgumentException illegalArrayLength(int length) {
 		return new IllegalArgumentException("arrayLength must be non-negative (" + length + ")");
 	}
 	
 	public static String remove(String src, char... remove) {
+		if (remove.length == 0) return src;
+		
+		int[] cache = newIndexCache(remove);
+		int next = indexOfAny(src, remove, cache, 0);
+		if (next < 0) return src;
+		
 		char[] result = new char[src.length() - count(src, remove)];
 		
-		char current;
 		int resultIndex = 0;
+		int runStart = 0;
 		
-		mainLoop:
-		for (int srcIndex = 0; srcIndex < src.length(); ++srcIndex) {
-			current = src.charAt(srcIndex);
-			
-			for (char c : remove) {
-				if (current == c) {
-					continue mainLoop;
-				}
-			}
-			
-			result[resultIndex++] = current;
-		}
+		// Copy runs of kept characters at once
+		do {
+			src.getChars(runStart, next, result, resultIndex);
+			resultIndex += next - runStart;
+			runStart = next + 1;
+			next = indexOfAny(src, remove, cache, runStart);
+		} while (next >= 0);
+		
+		src.getChars(runStart, src.length(), result, resultIndex);
 		
 		return new String(result);
 	}
@@ -399,21 +735,119 @@ public class StringUtil {
 	}
 	
 	public static String readToString(InputStream is, Charset encoding, int bufferSize) throws IOException {
-		char[] buffer = new char[bufferSize];
-		StringBuilder result = new StringBuilder();
+		return readToString(is, encoding, bufferSize, -1);
+	}
+	
+	/**
+	 * Reads the stream to the end and decodes it. Characters are read directly into the
+	 * result array, which starts at <code>expectedLength</code> characters, so a correct hint
+	 * means the result is allocated once and copied only into the returned string.
+	 * The stream is not closed.
+	 * @param is the stream to read
+	 * @param encoding the charset of the stream
+	 * @param bufferSize the minimum amount of characters to grow the result by
+	 * @param expectedLength the expected amount of characters, or a negative value if unknown
+	 * @return the decoded contents of the stream
+	 * @throws IOException if the stream throws an {@link IOException}
+	 */
+	public static String readToString(InputStream is, Charset encoding, int bufferSize, int expectedLength)
+			throws IOException {
+		if (bufferSize <= 0)
+			throw new IllegalArgumentException("bufferSize must be positive (" + bufferSize + ")");
+		
+		char[] result = new char[expectedLength >= 0 ? expectedLength : bufferSize];
+		int length = 0;
 		
 		Reader reader = new InputStreamReader(is, encoding);
 		while (true) {
-		    int readChars = reader.read(buffer, 0, buffer.length);
-		    
-		    if (readChars == -1) {
-		    	break;
-		    }
-		    
-		    result.append(buffer, 0, readChars);
+			if (length == result.length) {
+				// Only grow if the hint was too small
+				int next = reader.read();
+				if (next == -1) {
+					break;
+				}
+				
+				result = Arrays.copyOf(result, length + Math.max(length, bufferSize));
+				result[length++] = (char) next;
+			}
+			
+			int readChars = reader.read(result, length, result.length - length);
+			
+			if (readChars == -1) {
+				break;
+			}
+			
+			length += readChars;
+		}
+		
+		return new String(result, 0, length);
+	}
+	
+	/**
+	 * Reads and decodes the entire file.
+	 * @see #readToString(FileChannel, Charset)
+	 */
+	public static String readToString(Path path, Charset encoding) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return readToString(channel, encoding);
+		}
+	}
+	
+	/**
+	 * Reads the channel from its position to the end of the file and decodes it. The result is
+	 * presized from the file size, and bytes are decoded in blocks straight into it.
+	 * Malformed input and unmappable characters are replaced, as in {@link InputStreamReader}.
+	 * The channel is not closed.
+	 * @param channel the channel to read
+	 * @param encoding the charset of the file
+	 * @return the decoded contents of the file
+	 * @throws IOException if the channel throws an {@link IOException}
+	 */
+	public static String readToString(FileChannel channel, Charset encoding) throws IOException {
+		long bytes = Math.max(channel.size() - channel.position(), 0);
+		
+		CharsetDecoder decoder = encoding.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		
+		long expectedLength = (long) Math.ceil(bytes * (double) decoder.averageCharsPerByte());
+		if (expectedLength > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("File is too large to read into a String (" + bytes + " bytes)");
+		
+		CharBuffer output = CharBuffer.allocate((int) expectedLength);
+		ByteBuffer input = ByteBuffer.allocate(
+				(int) Math.max(MIN_CHANNEL_BUFFER_SIZE, Math.min(bytes, MAX_CHANNEL_BUFFER_SIZE))
+		);
+		
+		boolean endOfInput = false;
+		while (!endOfInput) {
+			endOfInput = channel.read(input) == -1;
+			input.flip();
+			
+			while (true) {
+				CoderResult result = decoder.decode(input, output, endOfInput);
+				if (!result.isOverflow()) break;
+				output = grow(output);
+			}
+			
+			input.compact();
+		}
+		
+		while (decoder.flush(output).isOverflow()) {
+			output = grow(output);
 		}
 		
-		return result.toString();
+		return new String(output.array(), 0, output.position());
+	}
+	
+	private static final int MIN_CHANNEL_BUFFER_SIZE = 64;
+	private static final int MAX_CHANNEL_BUFFER_SIZE = 64 * 1024;
+	
+	private static CharBuffer grow(CharBuffer buffer) {
+		CharBuffer result = CharBuffer.allocate(buffer.capacity() + Math.max(buffer.capacity(), MIN_CHANNEL_BUFFER_SIZE));
+		buffer.flip();
+		result.put(buffer);
+		return result;
 	}
 	
 	public static boolean equalsPart(char[] a, char[] b, int beginPos, int endPos) {
@@ -479,15 +913,20 @@ public class StringUtil {
 	 * @see StringUtil#indexFromEnd(char[], char, int)
 	 */
 	public static int indexFromBeginning(char[] src, char target, int skip) {
-		for (int i = 0; i < src.length; ++i) {
-			if (src[i] == target) {
-				if (skip == 0) {
-					return i;
-				}
-				
-				--skip;
+		CharScanner scanner = CharScanner.getInstance();
+		
+		for (
+				int i = scanner.indexOf(src, 0, src.length, target);
+				i >= 0;
+				i = scanner.indexOf(src, i + 1, src.length, target)
+		) {
+			if (skip == 0) {
+				return i;
 			}
+			
+			--skip;
 		}
+		
 		return -1;
 	}
 	
@@ -585,47 +1024,21 @@ public class StringUtil {
 	}
 	
 	public static int countWords(String src) {
-		int i = 0;
-		boolean isWord = false;
-		
-		for (char c : src.toCharArray()) {
-			if (Character.isWhitespace(c)) {
-				if (isWord) {
-					isWord = false;
-					i++;
-				}
-			} else {
-				isWord = true;
-			}
-		}
+		char[] chars = src.toCharArray();
+		int[] count = {0};
 		
-		if (isWord) {
-			i++;
-		}
+		WordReader.forEachWord(chars, 0, chars.length, (buffer, offset, length) -> count[0]++);
 		
-		return i;
+		return count[0];
 	}
 	
 	public static String[] splitWords(String src) {
-		String[] result = new String[countWords(src)];
+		char[] chars = src.toCharArray();
+		List<String> result = new ArrayList<>();
 		
-		int i = 0;
-		StringBuilder sb = new StringBuilder();
-		for (char c : src.toCharArray()) {
-			if (Character.isWhitespace(c)) {
-				if (sb.length() != 0) {
-					result[i++] = resetStringBuilder(sb);
-				}
-			} else {
-				sb.append(c);
-			}
-		}
-		
-		if (sb.length() != 0) {
-			result[i] = resetStringBuilder(sb);
-		}
+		WordReader.forEachWord(chars, 0, chars.length, (buffer, offset, length) -> result.add(src.substring(offset, offset + length)));
 		
-		return result;
+		return result.toArray(new String[result.size()]);
 	}
 	
 	public static char[] sequence(char c, int length) {
@@ -698,35 +1111,324 @@ public class StringUtil {
 		}
 	}
 	
+	/**
+	 * Lazily produces the same combinations as {@link #allCombinations(String[]...)}, in the same order.
+	 * Combinations are built one at a time as the stream is consumed, so the full product is
+	 * never stored. The stream is sequential; {@link Stream#parallel()} splits it evenly
+	 * by combination index, and short-circuiting operations such as {@link Stream#limit(long)}
+	 * do not build the remaining combinations.
+	 * @param parts the arrays to pick strings from
+	 * @return a sized stream of all concatenations of one string from each part
+	 * @throws IllegalArgumentException if there are more than {@link Long#MAX_VALUE} combinations
+	 */
+	public static Stream<String> streamCombinations(String[]... parts) {
+		return StreamSupport.stream(new CombinationSpliterator(parts.clone()), false);
+	}
+	
+	/**
+	 * Lazily produces the same combinations as {@link #allCombinations(Iterable...)}, in the same order.
+	 * Each part is copied into an array when this method is called.
+	 * @param parts the iterables to pick strings from
+	 * @return a sized stream of all concatenations of one string from each part
+	 * @throws IllegalArgumentException if there are more than {@link Long#MAX_VALUE} combinations
+	 * @see #streamCombinations(String[]...)
+	 */
+	@SafeVarargs
+	public static Stream<String> streamCombinations(Iterable<String>... parts) {
+		String[][] arrays = new String[parts.length][];
+		
+		for (int i = 0; i < parts.length; ++i) {
+			Iterable<String> part = parts[i];
+			
+			if (part instanceof Collection) {
+				arrays[i] = ((Collection<String>) part).toArray(new String[0]);
+			} else {
+				Collection<String> copy = new ArrayList<>();
+				part.forEach(copy::add);
+				arrays[i] = copy.toArray(new String[0]);
+			}
+		}
+		
+		return StreamSupport.stream(new CombinationSpliterator(arrays), false);
+	}
+	
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+	
+	/**
+	 * Values of ASCII hexadecimal digits in either case, -1 for other characters.
+	 */
+	private static final byte[] HEX_VALUES = new byte[128];
+	
+	/**
+	 * The amount of bytes {@link #encodeHex(ByteBuffer, String, int, char[], int)} copies out of
+	 * a buffer without an accessible array at a time.
+	 */
+	private static final int HEX_CHUNK_SIZE = 1024;
+	
+	static {
+		Arrays.fill(HEX_VALUES, (byte) -1);
+		for (int i = 0; i < 0x10; ++i) {
+			HEX_VALUES[Character.forDigit(i, 0x10)] = (byte) i;
+			HEX_VALUES[Character.toUpperCase(Character.forDigit(i, 0x10))] = (byte) i;
+		}
+	}
+	
 	public static String toUnsignedHexString(byte b) {
-		int unsigned = b;
-		if (b < 0) {
-			unsigned += 0x100;
+		return new String(new char[] {
+				HEX_DIGITS[(b >>> 4) & 0xF],
+				HEX_DIGITS[b & 0xF]
+		});
+	}
+	
+	/**
+	 * Encodes the bytes as lowercase hexadecimal digits, inserting <code>separator</code>
+	 * after every <code>size</code> bytes except the last ones.
+	 * @param bytes the bytes to encode
+	 * @param separator the separator between groups of bytes
+	 * @param size the amount of bytes in a group
+	 * @return the encoded bytes
+	 */
+	public static String toUnsignedHexString(byte[] bytes, String separator, int size) {
+		return toUnsignedHexString(bytes, 0, bytes.length, separator, size);
+	}
+	
+	/**
+	 * Encodes <code>bytes[offset; offset + length)</code> as lowercase hexadecimal digits.
+	 * @see #toUnsignedHexString(byte[], String, int)
+	 */
+	public static String toUnsignedHexString(byte[] bytes, int offset, int length, String separator, int size) {
+		if (offset < 0 || length < 0 || offset + length > bytes.length)
+			throw new IllegalArgumentException("Array contains [0; " + bytes.length + "), requested [" + offset + "; " + (offset + length) + ")");
+		
+		char[] result = new char[getUnsignedHexLength(length, separator, size)];
+		encodeHex(bytes, offset, length, 0, separator, size, result, 0);
+		return new String(result);
+	}
+	
+	/**
+	 * Encodes the remaining bytes of the buffer as lowercase hexadecimal digits.
+	 * The position of the buffer is not changed.
+	 * @see #toUnsignedHexString(byte[], String, int)
+	 */
+	public static String toUnsignedHexString(ByteBuffer buffer, String separator, int size) {
+		char[] result = new char[getUnsignedHexLength(buffer.remaining(), separator, size)];
+		encodeHex(buffer, separator, size, result, 0);
+		return new String(result);
+	}
+	
+	public static String toUnsignedHexString(byte[] bytes) {
+		return toUnsignedHexString(bytes, ", ", 1);
+	}
+	
+	/**
+	 * Appends <code>bytes[offset; offset + length)</code> encoded as lowercase hexadecimal digits.
+	 * @return <code>sb</code>
+	 * @see #toUnsignedHexString(byte[], String, int)
+	 */
+	public static StringBuilder appendUnsignedHex(StringBuilder sb, byte[] bytes, int offset, int length,
+			String separator, int size) {
+		if (offset < 0 || length < 0 || offset + length > bytes.length)
+			throw new IllegalArgumentException("Array contains [0; " + bytes.length + "), requested [" + offset + "; " + (offset + length) + ")");
+		
+		sb.ensureCapacity(sb.length() + getUnsignedHexLength(length, separator, size));
+		appendHex(bytes, offset, length, 0, separator, size, sb);
+		return sb;
+	}
+	
+	/**
+	 * Appends the remaining bytes of the buffer encoded as lowercase hexadecimal digits.
+	 * The position of the buffer is not changed.
+	 * @return <code>sb</code>
+	 * @see #toUnsignedHexString(byte[], String, int)
+	 */
+	public static StringBuilder appendUnsignedHex(StringBuilder sb, ByteBuffer buffer, String separator, int size) {
+		sb.ensureCapacity(sb.length() + getUnsignedHexLength(buffer.remaining(), separator, size));
+		
+		if (buffer.hasArray()) {
+			appendHex(
+					buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining(), 0,
+					separator, size, sb
+			);
+			return sb;
 		}
 		
-		char[] chars = new char[2];
+		ByteBuffer source = buffer.duplicate();
+		byte[] chunk = new byte[Math.min(HEX_CHUNK_SIZE, source.remaining())];
+		int index = 0;
 		
-		chars[0] = Character.forDigit(unsigned >>> 4, 0x10);
-		chars[1] = Character.forDigit(unsigned & 0x0F, 0x10);
+		while (source.hasRemaining()) {
+			int length = Math.min(chunk.length, source.remaining());
+			source.get(chunk, 0, length);
+			appendHex(chunk, 0, length, index, separator, size, sb);
+			index += length;
+		}
 		
-		return new String(chars);
+		return sb;
 	}
 	
-	public static String toUnsignedHexString(byte[] bytes, String separator, int size) {
-		StringBuilder sb = new StringBuilder();
+	/**
+	 * Computes the length of <code>bytes</code> bytes encoded by {@link #toUnsignedHexString(byte[], String, int)}.
+	 */
+	public static int getUnsignedHexLength(int bytes, String separator, int size) {
+		if (size <= 0)
+			throw new IllegalArgumentException("size must be positive (" + size + ")");
+		if (bytes == 0) return 0;
 		
-		for (int i = 0; i < bytes.length; ++i) {
-			sb.append(toUnsignedHexString(bytes[i]));
-			if (i < bytes.length - 1 && ((i + 1) % size == 0)) {
+		long result = 2L * bytes + (long) separator.length() * ((bytes - 1) / size);
+		if (result > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Too many bytes to encode (" + bytes + ")");
+		
+		return (int) result;
+	}
+	
+	/**
+	 * Writes hexadecimal digits of <code>bytes[offset; offset + length)</code> into <code>dest</code>.
+	 * Groups are counted from byte <code>firstIndex</code>.
+	 * @return the index in <code>dest</code> after the last written character
+	 */
+	private static int encodeHex(byte[] bytes, int offset, int length, int firstIndex,
+			String separator, int size, char[] dest, int destPos) {
+		final int separatorLength = separator.length();
+		int untilSeparator = firstIndex == 0 ? size : (size - firstIndex % size) % size;
+		
+		for (int i = offset; i < offset + length; ++i) {
+			if (untilSeparator == 0) {
+				separator.getChars(0, separatorLength, dest, destPos);
+				destPos += separatorLength;
+				untilSeparator = size;
+			}
+			
+			byte b = bytes[i];
+			dest[destPos++] = HEX_DIGITS[(b >>> 4) & 0xF];
+			dest[destPos++] = HEX_DIGITS[b & 0xF];
+			untilSeparator--;
+		}
+		
+		return destPos;
+	}
+	
+	/**
+	 * Appends hexadecimal digits of <code>bytes[offset; offset + length)</code> to <code>sb</code>
+	 * like {@link #encodeHex(byte[], int, int, int, String, int, char[], int)}.
+	 */
+	private static void appendHex(byte[] bytes, int offset, int length, int firstIndex,
+			String separator, int size, StringBuilder sb) {
+		int untilSeparator = firstIndex == 0 ? size : (size - firstIndex % size) % size;
+		
+		for (int i = offset; i < offset + length; ++i) {
+			if (untilSeparator == 0) {
 				sb.append(separator);
+				untilSeparator = size;
 			}
+			
+			byte b = bytes[i];
+			sb.append(HEX_DIGITS[(b >>> 4) & 0xF]);
+			sb.append(HEX_DIGITS[b & 0xF]);
+			untilSeparator--;
+		}
+	}
+	
+	private static int encodeHex(ByteBuffer buffer, String separator, int size, char[] dest, int destPos) {
+		if (buffer.hasArray()) {
+			return encodeHex(
+					buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining(), 0,
+					separator, size, dest, destPos
+			);
+		}
+		
+		ByteBuffer source = buffer.duplicate();
+		byte[] chunk = new byte[Math.min(HEX_CHUNK_SIZE, source.remaining())];
+		int index = 0;
+		
+		while (source.hasRemaining()) {
+			int length = Math.min(chunk.length, source.remaining());
+			source.get(chunk, 0, length);
+			destPos = encodeHex(chunk, 0, length, index, separator, size, dest, destPos);
+			index += length;
 		}
 		
-		return sb.toString();
+		return destPos;
 	}
 	
-	public static String toUnsignedHexString(byte[] bytes) {
-		return toUnsignedHexString(bytes, ", ", 1);
+	/**
+	 * Decodes hexadecimal digits in either case with no separators.
+	 * @param hex the digits to decode
+	 * @return the decoded bytes
+	 * @throws NumberFormatException if <code>hex</code> is not a valid encoding
+	 */
+	public static byte[] fromUnsignedHexString(CharSequence hex) {
+		return fromUnsignedHexString(hex, 0, hex.length(), "", 1);
+	}
+	
+	/**
+	 * Decodes the output of {@link #toUnsignedHexString(byte[], String, int)} with the same
+	 * <code>separator</code> and <code>size</code>. Digits may be in either case.
+	 * @param hex the characters to decode
+	 * @param separator the separator between groups of bytes
+	 * @param size the amount of bytes in a group
+	 * @return the decoded bytes
+	 * @throws NumberFormatException if <code>hex</code> is not a valid encoding
+	 */
+	public static byte[] fromUnsignedHexString(CharSequence hex, String separator, int size) {
+		return fromUnsignedHexString(hex, 0, hex.length(), separator, size);
+	}
+	
+	/**
+	 * Decodes <code>hex[start; end)</code>.
+	 * @see #fromUnsignedHexString(CharSequence, String, int)
+	 */
+	public static byte[] fromUnsignedHexString(CharSequence hex, int start, int end, String separator, int size) {
+		if (size <= 0)
+			throw new IllegalArgumentException("size must be positive (" + size + ")");
+		
+		final int separatorLength = separator.length();
+		final int length = end - start;
+		final int groupLength = 2 * size + separatorLength;
+		
+		// length = (groups - 1) * groupLength + 2 * bytesInLastGroup
+		int bytes;
+		if (length == 0) {
+			bytes = 0;
+		} else {
+			int fullGroups = (length + separatorLength) / groupLength;
+			int rest = (length + separatorLength) % groupLength;
+			
+			if (rest == 0) {
+				bytes = fullGroups * size;
+			} else if (rest >= separatorLength + 2 && (rest - separatorLength) % 2 == 0) {
+				bytes = fullGroups * size + (rest - separatorLength) / 2;
+			} else {
+				throw new NumberFormatException("Invalid length of hex string (" + length + ")");
+			}
+		}
+		
+		byte[] result = new byte[bytes];
+		int pos = start;
+		
+		for (int i = 0; i < bytes; ++i) {
+			if (i != 0 && i % size == 0) {
+				for (int j = 0; j < separatorLength; ++j) {
+					if (hex.charAt(pos + j) != separator.charAt(j))
+						throw new NumberFormatException("Separator expected at index " + pos);
+				}
+				pos += separatorLength;
+			}
+			
+			int high = hexValue(hex.charAt(pos));
+			int low = hexValue(hex.charAt(pos + 1));
+			
+			if ((high | low) < 0)
+				throw new NumberFormatException("Invalid hex digit at index " + (high < 0 ? pos : pos + 1));
+			
+			result[i] = (byte) ((high << 4) | low);
+			pos += 2;
+		}
+		
+		return result;
+	}
+	
+	private static int hexValue(char c) {
+		return c < HEX_VALUES.length ? HEX_VALUES[c] : -1;
 	}
 	
 	public static char[] toFullHex(byte x) {
@@ -0,0 +1,151 @@
+/*
+ * JPUtil
+ * Copyright (C) 2019  Javapony/OLEGSHA
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package ru.windcorp.jputil.chars;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Objects;
+
+import ru.windcorp.jputil.chars.reader.CharReader;
+import ru.windcorp.jputil.chars.reader.CharReaders;
+
+/**
+ * A {@link Reader} that unescapes characters read from another reader with an
+ * {@link Escaper}. Input is read in blocks into an internal buffer; runs of characters
+ * between escape sequences are copied in bulk.
+ * <p>
+ * Invalid escape sequences cause an {@link IOException} with the {@link EscapeException}
+ * as its cause.
+ *
+ * @author Javapony
+ * @see Escaper#unescapingReader(Reader)
+ */
+public class UnescapingReader extends Reader {
+
+	protected static final int DEFAULT_BUFFER_SIZE = 8192;
+
+	/**
+	 * The longest sequence {@link Escaper#unescapeOneSequence(CharReader)} consumes.
+	 */
+	private static final int MAX_SEQUENCE_LENGTH = 6;
+
+	private final Escaper escaper;
+	private final Reader in;
+
+	/**
+	 * Characters read from {@link #in} that have not been unescaped yet are stored at
+	 * <code>[pos; limit)</code>.
+	 */
+	private final char[] buffer;
+	private int pos = 0;
+	private int limit = 0;
+
+	private boolean eof = false;
+
+	/**
+	 * Reads <code>buffer[0; limit)</code>.
+	 */
+	private CharReader view;
+
+	public UnescapingReader(Escaper escaper, Reader in, int bufferSize) {
+		this.escaper = Objects.requireNonNull(escaper, "escaper");
+		this.in = Objects.requireNonNull(in, "in");
+
+		if (bufferSize < MAX_SEQUENCE_LENGTH)
+			throw new IllegalArgumentException("bufferSize must be at least " + MAX_SEQUENCE_LENGTH + " (" + bufferSize + ")");
+
+		this.buffer = new char[bufferSize];
+		this.view = CharReaders.wrap(buffer, 0, 0);
+	}
+
+	public UnescapingReader(Escaper escaper, Reader in) {
+		this(escaper, in, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * @see java.io.Reader#read(char[], int, int)
+	 */
+	@Override
+	public int read(char[] cbuf, int off, int len) throws IOException {
+		if (len == 0) return 0;
+
+		final char escapeChar = escaper.getEscapeChar();
+		final int end = off + len;
+		int out = off;
+
+		while (out < end) {
+			if (
+					!eof &&
+					(pos == limit || (buffer[pos] == escapeChar && limit - pos < MAX_SEQUENCE_LENGTH))
+			) {
+				// Do not block if some characters are ready
+				if (out != off) break;
+				fillBuffer();
+				continue;
+			}
+
+			if (pos == limit) break;
+
+			if (buffer[pos] != escapeChar) {
+				int runEnd = pos;
+				int maxRunEnd = Math.min(limit, pos + end - out);
+				while (runEnd < maxRunEnd && buffer[runEnd] != escapeChar) runEnd++;
+
+				System.arraycopy(buffer, pos, cbuf, out, runEnd - pos);
+				out += runEnd - pos;
+				pos = runEnd;
+				continue;
+			}
+
+			view.setPosition(pos);
+			try {
+				cbuf[out++] = escaper.unescapeOneSequence(view);
+			} catch (EscapeException e) {
+				throw new IOException(e.getMessage(), e);
+			}
+			pos = view.getPosition();
+		}
+
+		return out == off ? -1 : out - off;
+	}
+
+	private void fillBuffer() throws IOException {
+		System.arraycopy(buffer, pos, buffer, 0, limit - pos);
+		limit -= pos;
+		pos = 0;
+
+		int read = in.read(buffer, limit, buffer.length - limit);
+		if (read < 0) {
+			eof = true;
+		} else {
+			limit += read;
+		}
+
+		view = CharReaders.wrap(buffer, 0, limit);
+	}
+
+	/**
+	 * Closes the underlying reader.
+	 * @see java.io.Reader#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+}
@@ -0,0 +1,118 @@
+/*
+ * JPUtil
+ * Copyright (C) 2019  Javapony/OLEGSHA
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package ru.windcorp.jputil.chars;
+
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * A {@link CharScanner} that compares a full vector of 16-bit lanes at a time with the
+ * incubating Vector API, loading characters with {@link ShortVector#fromCharArray}.
+ * It is only loaded by {@link CharScanner#getInstance()} when the
+ * <code>jdk.incubator.vector</code> module is present; compiling it requires
+ * <code>--add-modules jdk.incubator.vector</code>.
+ * <p>
+ * Ranges shorter than a vector and the tails of longer ranges are scanned by the
+ * {@linkplain CharScanner#getScalar() scalar implementation}.
+ *
+ * @author Javapony
+ */
+class VectorCharScanner extends CharScanner {
+
+	private static final VectorSpecies<Short> SPECIES = ShortVector.SPECIES_PREFERRED;
+	private static final int LENGTH = SPECIES.length();
+
+	private final CharScanner scalar = CharScanner.getScalar();
+
+	VectorCharScanner() {
+		// Instantiated reflectively
+	}
+
+	@Override
+	public int indexOf(char[] array, int from, int to, char target) {
+		int i = from;
+
+		for (; i <= to - LENGTH; i += LENGTH) {
+			VectorMask<Short> found = ShortVector.fromCharArray(SPECIES, array, i).eq((short) target);
+			if (found.anyTrue()) {
+				return i + found.firstTrue();
+			}
+		}
+
+		return scalar.indexOf(array, i, to, target);
+	}
+
+	@Override
+	public int indexOfAny(char[] array, int from, int to, char[] targets) {
+		if (targets.length == 1) return indexOf(array, from, to, targets[0]);
+		if (targets.length == 0) return -1;
+
+		int i = from;
+
+		for (; i <= to - LENGTH; i += LENGTH) {
+			VectorMask<Short> found = matchAny(ShortVector.fromCharArray(SPECIES, array, i), targets);
+			if (found.anyTrue()) {
+				return i + found.firstTrue();
+			}
+		}
+
+		return indexOfAnyScalar(array, i, to, targets);
+	}
+
+	@Override
+	public int count(char[] array, int from, int to, char target) {
+		int result = 0;
+		int i = from;
+
+		for (; i <= to - LENGTH; i += LENGTH) {
+			result += ShortVector.fromCharArray(SPECIES, array, i).eq((short) target).trueCount();
+		}
+
+		return result + scalar.count(array, i, to, target);
+	}
+
+	@Override
+	public int countAny(char[] array, int from, int to, char[] targets) {
+		if (targets.length == 1) return count(array, from, to, targets[0]);
+		if (targets.length == 0) return 0;
+
+		int result = 0;
+		int i = from;
+
+		for (; i <= to - LENGTH; i += LENGTH) {
+			result += matchAny(ShortVector.fromCharArray(SPECIES, array, i), targets).trueCount();
+		}
+
+		return result + countAnyScalar(array, i, to, targets);
+	}
+
+	private static VectorMask<Short> matchAny(ShortVector chars, char[] targets) {
+		VectorMask<Short> result = chars.eq((short) targets[0]);
+		for (int k = 1; k < targets.length; ++k) {
+			result = result.or(chars.eq((short) targets[k]));
+		}
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		return "vector (" + SPECIES + ")";
+	}
+
+}
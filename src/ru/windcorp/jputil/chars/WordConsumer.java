@@ -0,0 +1,40 @@
+/*
+ * JPUtil
+ * Copyright (C) 2019  Javapony/OLEGSHA
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package ru.windcorp.jputil.chars;
+
+/**
+ * Receives words found by {@link WordReader} without creating {@link String}s.
+ *
+ * @author Javapony
+ * @see WordReader#forEachWord(WordConsumer)
+ */
+@FunctionalInterface
+public interface WordConsumer {
+
+	/**
+	 * Accepts the word <code>buffer[offset; offset + length)</code>. The array may be the
+	 * input itself or an internal buffer that is overwritten later, so its contents
+	 * must not be modified or used after this method returns.
+	 * 
+	 * @param buffer the array that contains the word
+	 * @param offset index of the first character of the word
+	 * @param length the length of the word, always positive
+	 */
+	void accept(char[] buffer, int offset, int length);
+
+}
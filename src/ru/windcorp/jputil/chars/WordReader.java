@@ -16,13 +16,27 @@ package ru.windcorp.jputil.chars;
 
 import java.io.IOException;
 import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import ru.windcorp.jputil.chars.reader.CharReader;
+import ru.windcorp.jputil.chars.reader.CharReaders;
+import ru.windcorp.jputil.chars.reader.MappedCharReader;
 
 public class WordReader implements Iterator<String> {
 	
+	private static final int FILE_CHUNK_SIZE = 1024 * 1024;
+	private static final int MAX_CHUNK_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+	
 	private final Reader reader;
 	
 	private char[] wordBuffer = new char[1024];
@@ -31,11 +45,20 @@ public class WordReader implements Iterator<String> {
 	private String next = null;
 	private boolean isExhausted = false;
 	
+	/**
+	 * The position of {@link #inputBuffer} before {@link #next} was read.
+	 */
+	private int nextPosition = 0;
+	
+	private StringInterner interner = null;
+	private final WordConsumer nextSetter = this::setNext;
+	
 	private IOException lastException = null;
 
 	public WordReader(Reader src, int bufferSize) {
 		this.reader = src;
 		this.inputBuffer = CharBuffer.allocate(bufferSize);
+		this.inputBuffer.limit(0);
 	}
 	
 	public WordReader(Reader src) {
@@ -44,7 +67,7 @@ public class WordReader implements Iterator<String> {
 	
 	public WordReader(char[] array, int offset, int length) {
 		this.reader = null;
-		this.inputBuffer = CharBuffer.wrap(Arrays.copyOfRange(array, offset, length + offset));
+		this.inputBuffer = CharBuffer.wrap(array, offset, length);
 	}
 	
 	public WordReader(char[] array) {
@@ -56,6 +79,47 @@ public class WordReader implements Iterator<String> {
 		this(str.toCharArray());
 	}
 	
+	/**
+	 * Creates a stream of the words in a file. The file is cut into chunks at line breaks,
+	 * so a parallel stream reads and splits chunks concurrently. Words are interned with
+	 * <code>interner</code> if it is not <code>null</code>.
+	 * <p>
+	 * I/O errors are rethrown as {@link UncheckedIOException}s. The channel is not closed.
+	 * @param channel the file to read
+	 * @param charset the charset of the file, see {@link CharReaders#splitLines(FileChannel, Charset, int)}
+	 * @param interner the cache to intern words with, or <code>null</code>
+	 * @return a sequential stream of the words in the file
+	 * @throws IOException if the size of the channel could not be determined
+	 */
+	public static Stream<String> words(FileChannel channel, Charset charset, StringInterner interner)
+			throws IOException {
+		return StreamSupport.stream(CharReaders.splitLines(channel, charset, FILE_CHUNK_SIZE), false)
+				.flatMap(chunk -> wordsOfChunk(chunk, interner));
+	}
+	
+	private static Stream<String> wordsOfChunk(CharReader chunk, StringInterner interner) {
+		// The ASCII-compatible charsets accepted by splitLines() decode at most one character per byte
+		int capacity = FILE_CHUNK_SIZE;
+		if (chunk instanceof MappedCharReader) {
+			capacity = (int) Math.min(((MappedCharReader) chunk).getByteLength(), MAX_CHUNK_ARRAY_SIZE);
+		}
+		
+		char[] chars = new char[capacity];
+		int length = 0;
+		
+		while (true) {
+			length += chunk.getChars(chars, length, chars.length - length);
+			if (length < chars.length || chunk.isEnd()) break;
+			chars = Arrays.copyOf(chars, Math.max(chars.length * 2, 16));
+		}
+		
+		if (chunk.hasErrored()) {
+			throw new UncheckedIOException(chunk.getLastException());
+		}
+		
+		return StreamSupport.stream(new WordSpliterator(chars, 0, length, interner), false);
+	}
+	
 	@Override
 	public String next() {
 		if (!hasNext()) {
@@ -77,60 +141,231 @@ public class WordReader implements Iterator<String> {
 			return false;
 		}
 		
-		int length = 0;
-		char c;
-		while (true) {
-			c = nextChar();
+		nextPosition = inputBuffer.position();
+		return readWord(nextSetter);
+	}
+	
+	private void setNext(char[] buffer, int offset, int length) {
+		if (interner == null) {
+			next = new String(buffer, offset, length);
+		} else {
+			next = interner.intern(buffer, offset, length);
+		}
+	}
+	
+	/**
+	 * Passes the next word to <code>action</code> without creating a {@link String}.
+	 * @param action the consumer to receive the word
+	 * @return <code>false</code> if there are no more words
+	 */
+	public boolean nextWord(WordConsumer action) {
+		if (next != null) {
+			String word = next;
+			next = null;
 			
-			if (isExhausted) break;
+			ensureWordBufferCapacity(word.length());
+			word.getChars(0, word.length(), wordBuffer, 0);
+			action.accept(wordBuffer, 0, word.length());
+			return true;
+		}
+		
+		if (isExhausted) {
+			return false;
+		}
+		
+		return readWord(action);
+	}
+	
+	/**
+	 * Passes all remaining words to <code>action</code> without creating {@link String}s.
+	 * Words of readers created from an array or a string are passed as ranges of that array.
+	 * @param action the consumer to receive the words
+	 */
+	public void forEachWord(WordConsumer action) {
+		while (nextWord(action));
+	}
+	
+	/**
+	 * Passes all words of <code>array[offset; offset + length)</code> to <code>action</code>
+	 * as ranges of <code>array</code>.
+	 * @param array the characters to split into words
+	 * @param offset the index of the first character
+	 * @param length the amount of characters
+	 * @param action the consumer to receive the words
+	 */
+	public static void forEachWord(char[] array, int offset, int length, WordConsumer action) {
+		final int end = offset + length;
+		int position = skipWhitespace(array, offset, end);
+		
+		while (position < end) {
+			int wordEnd = skipWord(array, position, end);
+			action.accept(array, position, wordEnd - position);
+			position = skipWhitespace(array, wordEnd, end);
+		}
+	}
+	
+	/**
+	 * Finds the next word and passes it to <code>action</code>. Words that lie within
+	 * {@link #inputBuffer} are passed directly; words that cross its refills are collected
+	 * in {@link #wordBuffer}.
+	 */
+	private boolean readWord(WordConsumer action) {
+		int length = 0;
+		
+		while (inputBuffer.hasRemaining() || fillInputBuffer()) {
+			char[] array = inputBuffer.array();
+			int arrayOffset = inputBuffer.arrayOffset();
+			int limit = arrayOffset + inputBuffer.limit();
 			
-			if (Character.isWhitespace(c)) {
-				if (length == 0) continue;
-				else break;
+			int wordStart = arrayOffset + inputBuffer.position();
+			if (length == 0) {
+				wordStart = skipWhitespace(array, wordStart, limit);
 			}
 			
-			if (wordBuffer.length == length) {
-				char[] newBuf = new char[wordBuffer.length * 2];
-				System.arraycopy(wordBuffer, 0, newBuf, 0, wordBuffer.length);
-				wordBuffer = newBuf;
+			int wordEnd = skipWord(array, wordStart, limit);
+			inputBuffer.position(wordEnd - arrayOffset);
+			
+			// A word that reaches the limit may continue after a refill, unless there is no reader
+			if (wordEnd < limit || reader == null) {
+				if (length == 0) {
+					if (wordStart == wordEnd) continue;
+					action.accept(array, wordStart, wordEnd - wordStart);
+					return true;
+				}
+				
+				appendToWordBuffer(array, wordStart, wordEnd, length);
+				action.accept(wordBuffer, 0, length + wordEnd - wordStart);
+				return true;
 			}
 			
-			wordBuffer[length++] = c;
+			appendToWordBuffer(array, wordStart, wordEnd, length);
+			length += wordEnd - wordStart;
 		}
 		
 		if (length == 0) {
 			return false;
 		}
 		
-		next = new String(wordBuffer, 0, length);
+		action.accept(wordBuffer, 0, length);
 		return true;
 	}
+	
+	private void appendToWordBuffer(char[] array, int from, int to, int wordBufferLength) {
+		ensureWordBufferCapacity(wordBufferLength + to - from);
+		System.arraycopy(array, from, wordBuffer, wordBufferLength, to - from);
+	}
+	
+	private void ensureWordBufferCapacity(int capacity) {
+		if (wordBuffer.length < capacity) {
+			wordBuffer = Arrays.copyOf(wordBuffer, Math.max(wordBuffer.length * 2, capacity));
+		}
+	}
 
-	private char nextChar() {
-		if (!inputBuffer.hasRemaining()) {
-			if (reader == null) {
-				isExhausted = true;
-				return 0;
-			}
+	/**
+	 * Reads more characters into {@link #inputBuffer}.
+	 * @return <code>false</code> if there are no more characters
+	 */
+	private boolean fillInputBuffer() {
+		if (reader == null) {
+			isExhausted = true;
+			return false;
+		}
+		
+		try {
+			int read;
+			do {
+				inputBuffer.clear();
+				read = reader.read(inputBuffer);
+				inputBuffer.flip();
+			} while (read == 0);
 			
-			inputBuffer.rewind();
-			try {
-				if (reader.read(inputBuffer) == -1) {
-					isExhausted = true;
-				}
-			} catch (IOException e) {
-				lastException = e;
+			if (read == -1) {
 				isExhausted = true;
-				return 0;
+				return false;
 			}
-			
+		} catch (IOException e) {
+			lastException = e;
+			isExhausted = true;
+			return false;
 		}
-
-		return inputBuffer.get();
+		
+		return true;
+	}
+	
+	/**
+	 * Returns a {@link Spliterator} over the remaining words. This reader is exhausted afterwards.
+	 * <p>
+	 * Readers created from an array or a string return a {@link WordSpliterator} that can be
+	 * split for parallel processing; readers that read from a {@link Reader} return a sequential
+	 * spliterator.
+	 * @return a spliterator over the remaining words
+	 */
+	public Spliterator<String> spliterator() {
+		if (reader != null) {
+			return Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL);
+		}
+		
+		int from = next == null ? inputBuffer.position() : nextPosition;
+		int to = inputBuffer.limit();
+		
+		next = null;
+		isExhausted = true;
+		inputBuffer.position(to);
+		
+		return new WordSpliterator(
+				inputBuffer.array(),
+				inputBuffer.arrayOffset() + from,
+				to - from,
+				interner
+		);
+	}
+	
+	/**
+	 * Returns a sequential stream of the remaining words. This reader is exhausted afterwards.
+	 * @return a stream of the remaining words
+	 * @see #spliterator()
+	 */
+	public Stream<String> stream() {
+		return StreamSupport.stream(spliterator(), false);
+	}
+	
+	/**
+	 * @return the index of the first non-whitespace character in <code>array[from; to)</code>,
+	 * or <code>to</code>
+	 */
+	static int skipWhitespace(char[] array, int from, int to) {
+		int i = from;
+		while (i < to && Character.isWhitespace(array[i])) i++;
+		return i;
+	}
+	
+	/**
+	 * @return the index of the first whitespace character in <code>array[from; to)</code>,
+	 * or <code>to</code>
+	 */
+	static int skipWord(char[] array, int from, int to) {
+		int i = from;
+		while (i < to && !Character.isWhitespace(array[i])) i++;
+		return i;
 	}
 	
 	public IOException getLastException() {
 		return lastException;
 	}
+	
+	public StringInterner getInterner() {
+		return interner;
+	}
+	
+	/**
+	 * Sets the cache to intern the words with. Words are created as new {@link String}s
+	 * if the interner is <code>null</code>, which is the default.
+	 * @param interner the cache to use or <code>null</code>
+	 * @return this object
+	 */
+	public WordReader setInterner(StringInterner interner) {
+		this.interner = interner;
+		return this;
+	}
 
 }
@@ -0,0 +1,132 @@
+/*
+ * JPUtil
+ * Copyright (C) 2019  Javapony/OLEGSHA
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package ru.windcorp.jputil.chars;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * A {@link Spliterator} over the words of a <code>char[]</code> range. Words are the same
+ * as those returned by {@link WordReader}: maximal runs of characters that are not
+ * {@linkplain Character#isWhitespace(char) whitespace}.
+ * <p>
+ * {@link #trySplit()} halves the remaining range, moving the split point forward to the
+ * next whitespace character, so no word is cut in two. Words are interned with a
+ * {@link StringInterner} if one is given.
+ *
+ * @author Javapony
+ * @see WordReader#spliterator()
+ */
+public class WordSpliterator implements Spliterator<String> {
+
+	protected static final int DEFAULT_MIN_SPLIT_SIZE = 16 * 1024;
+
+	private final char[] array;
+
+	/**
+	 * The remaining input is <code>array[position; end)</code>.
+	 */
+	private int position;
+	private final int end;
+
+	private final StringInterner interner;
+	private final int minSplitSize;
+
+	/**
+	 * @param array the array to read
+	 * @param offset the index of the first character to read
+	 * @param length the amount of characters to read
+	 * @param interner the cache to intern words with, or <code>null</code>
+	 * @param minSplitSize the minimum amount of characters in a part created by {@link #trySplit()}
+	 */
+	public WordSpliterator(char[] array, int offset, int length, StringInterner interner, int minSplitSize) {
+		if (offset < 0 || length < 0 || offset + length > array.length)
+			throw new IllegalArgumentException("Array contains [0; " + array.length + "), requested [" + offset + "; " + (offset + length) + ")");
+		if (minSplitSize <= 0)
+			throw new IllegalArgumentException("minSplitSize must be positive (" + minSplitSize + ")");
+
+		this.array = array;
+		this.position = offset;
+		this.end = offset + length;
+		this.interner = interner;
+		this.minSplitSize = minSplitSize;
+	}
+
+	public WordSpliterator(char[] array, int offset, int length, StringInterner interner) {
+		this(array, offset, length, interner, DEFAULT_MIN_SPLIT_SIZE);
+	}
+
+	public WordSpliterator(char[] array, int offset, int length) {
+		this(array, offset, length, null);
+	}
+
+	/**
+	 * @see java.util.Spliterator#tryAdvance(java.util.function.Consumer)
+	 */
+	@Override
+	public boolean tryAdvance(Consumer<? super String> action) {
+		int wordStart = WordReader.skipWhitespace(array, position, end);
+		if (wordStart == end) {
+			position = end;
+			return false;
+		}
+
+		int wordEnd = WordReader.skipWord(array, wordStart, end);
+		position = wordEnd;
+
+		action.accept(
+				interner == null
+				? new String(array, wordStart, wordEnd - wordStart)
+				: interner.intern(array, wordStart, wordEnd - wordStart)
+		);
+		return true;
+	}
+
+	/**
+	 * @see java.util.Spliterator#trySplit()
+	 */
+	@Override
+	public Spliterator<String> trySplit() {
+		if (end - position < 2 * minSplitSize) return null;
+
+		int splitPoint = WordReader.skipWord(array, position + (end - position) / 2, end - minSplitSize);
+		if (splitPoint >= end - minSplitSize) return null;
+
+		WordSpliterator prefix = new WordSpliterator(array, position, splitPoint - position, interner, minSplitSize);
+		position = splitPoint;
+		return prefix;
+	}
+
+	/**
+	 * Returns the amount of remaining characters, which is at least the amount of remaining words.
+	 * @see java.util.Spliterator#estimateSize()
+	 */
+	@Override
+	public long estimateSize() {
+		return end - position;
+	}
+
+	/**
+	 * @see java.util.Spliterator#characteristics()
+	 */
+	@Override
+	public int characteristics() {
+		return ORDERED | NONNULL | IMMUTABLE;
+	}
+
+}
@@ -79,6 +79,18 @@ public abstract class AbstractCharReader implements CharReader {
 		return marks[--nextMark];
 	}
 
+	/**
+	 * Returns the lowest position that may be restored with {@link #reset()}.
+	 * @return the lowest outstanding mark or {@link Integer#MAX_VALUE} if there are no marks
+	 */
+	protected int getLowestMark() {
+		int result = Integer.MAX_VALUE;
+		for (int i = 0; i < nextMark; ++i) {
+			if (marks[i] < result) result = marks[i];
+		}
+		return result;
+	}
+
 	private void ensureMarksCapacity() {
 		if (nextMark < marks.length) return;
 		int[] newMarks = new int[closestGreaterPowerOf2(nextMark)];
@@ -91,9 +103,12 @@ public abstract class AbstractCharReader implements CharReader {
 		StringBuilder sb = new StringBuilder("\"");
 		
 		mark();
-		position = 0;
-		sb.append(getChars());
-		reset();
+		try {
+			position = 0;
+			sb.append(getChars());
+		} finally {
+			reset();
+		}
 		
 		sb.append("\"\n ");
 		for (int i = 0; i < position; ++i) sb.append(' ');
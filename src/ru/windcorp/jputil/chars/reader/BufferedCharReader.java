@@ -17,6 +17,10 @@
  */
 package ru.windcorp.jputil.chars.reader;
 
+import java.nio.CharBuffer;
+
+import ru.windcorp.jputil.chars.CharPredicate;
+
 /**
  * @author Javapony
  *
@@ -26,12 +30,18 @@ public abstract class BufferedCharReader extends AbstractCharReader {
 	protected static final int DEFAULT_BUFFER_SIZE = 256;
 	/**
 	 * Buffer to store data acquired with {@link #pullChars(char[], int, int)}.
-	 * Contains characters for positions <code>[0; bufferNextIndex)</code>.
+	 * Contains characters for positions <code>[bufferStart; bufferNextIndex)</code>.
 	 */
 	private char[] buffer = new char[DEFAULT_BUFFER_SIZE];
 	
 	/**
-	 * The index of the next character.
+	 * The position of the first character in the buffer. Always 0 unless
+	 * a rewind limit is set.
+	 */
+	private int bufferStart = 0;
+	
+	/**
+	 * The position of the next character.
 	 */
 	private int bufferNextIndex = 0;
 	
@@ -39,6 +49,47 @@ public abstract class BufferedCharReader extends AbstractCharReader {
 	 * Whether this reader has been buffered completely.
 	 */
 	private boolean exhausted = false;
+	
+	/**
+	 * Whether {@link #pullChar()} has returned {@link #DONE}.
+	 */
+	private boolean pullCharDone = false;
+	
+	/**
+	 * The amount of characters before the current position that are kept in the buffer,
+	 * or a negative value to keep all characters.
+	 * @see #setRewindLimit(int)
+	 */
+	private int rewindLimit = -1;
+	
+	/**
+	 * The minimum amount of characters requested from {@link #pullChars(char[], int, int)}
+	 * at once.
+	 */
+	private final int readAhead;
+	
+	/**
+	 * Line index fed with pulled characters, or <code>null</code>.
+	 * @see #indexLines()
+	 */
+	private LineIndex lineIndex = null;
+	
+	/**
+	 * @param readAhead the minimum amount of characters to request from
+	 * {@link #pullChars(char[], int, int)} at once
+	 */
+	protected BufferedCharReader(int readAhead) {
+		if (readAhead <= 0)
+			throw new IllegalArgumentException("readAhead must be positive (" + readAhead + ")");
+		this.readAhead = readAhead;
+	}
+	
+	/**
+	 * Creates a reader that only pulls the characters it needs.
+	 */
+	protected BufferedCharReader() {
+		this(1);
+	}
 
 	/**
 	 * Acquires the next character.
@@ -47,17 +98,26 @@ public abstract class BufferedCharReader extends AbstractCharReader {
 	protected abstract char pullChar();
 
 	/**
-	 * Acquires next characters and stores them in the array.
+	 * Acquires next characters and stores them in the array. This method may pull
+	 * less than <code>length</code> characters if no more characters are
+	 * available at the moment.
+	 * <p>
+	 * The default implementation calls {@link #pullChar()} until <code>length</code>
+	 * characters are pulled or {@link #DONE} is returned.
 	 * 
 	 * @param buffer the output array
 	 * @param offset index of the first character
-	 * @param length maximum amount of characters to be pulled
-	 * @return the amount of characters actually pulled
+	 * @param length maximum amount of characters to be pulled, always positive
+	 * @return the amount of characters actually pulled, or a non-positive value if
+	 * the end of the reader has been reached
 	 */
 	protected int pullChars(char[] buffer, int offset, int length) {
+		if (pullCharDone) return -1;
+		
 		for (int i = 0; i < length; ++i) {
 			if ((buffer[offset + i] = pullChar()) == DONE) {
-				return i;
+				pullCharDone = true;
+				return i == 0 ? -1 : i;
 			}
 		}
 		
@@ -68,8 +128,13 @@ public abstract class BufferedCharReader extends AbstractCharReader {
 		if (exhausted || length == 0) return 0;
 		
 		int pulled = pullChars(buffer, offset, length);
-		if (pulled != length) {
+		if (pulled <= 0) {
 			exhausted = true;
+			return 0;
+		}
+		
+		if (lineIndex != null) {
+			lineIndex.index(buffer, offset, pulled);
 		}
 		
 		return pulled;
@@ -77,46 +142,191 @@ public abstract class BufferedCharReader extends AbstractCharReader {
 	
 	@Override
 	public char current() {
-		if (getPosition() < 0) {
-			throw new IllegalStateException("Position " + getPosition() + " is invalid");
+		if (getPosition() < bufferStart) {
+			if (getPosition() < 0) {
+				throw new IllegalStateException("Position " + getPosition() + " is invalid");
+			}
+			
+			throw new IllegalStateException(
+					"Position " + getPosition() + " has been discarded, buffer starts at " + bufferStart
+					+ " (rewind limit " + rewindLimit + ")"
+			);
 		}
 			
 		if (getPosition() >= bufferNextIndex) {
 			if (exhausted) return DONE;
 			
-			ensureBufferCapacity();
-			
-			int needToPull = getPosition() - bufferNextIndex + 1;
-			assert needToPull <= buffer.length : "buffer size not ensured!";
+			fillBuffer();
 			
-			int pulled = pullChars(bufferNextIndex, needToPull);
-			bufferNextIndex += pulled;
-			
-			if (exhausted) return DONE;
+			if (getPosition() >= bufferNextIndex) return DONE;
 		}
 		
 		// TODO test the shit out of current()
 		
-		return buffer[getPosition()];
+		return buffer[getPosition() - bufferStart];
+	}
+	
+	private void fillBuffer() {
+		while (getPosition() >= bufferNextIndex && !exhausted) {
+			int wanted = Math.max(getPosition() - bufferNextIndex + 1, readAhead);
+			ensureBufferCapacity(wanted);
+			
+			int needToPull = Math.min(wanted, bufferStart + buffer.length - bufferNextIndex);
+			assert needToPull > 0 : "buffer size not ensured!";
+			
+			bufferNextIndex += pullChars(bufferNextIndex - bufferStart, needToPull);
+		}
 	}
 
-	private void ensureBufferCapacity() {
-		if (getPosition() < buffer.length) return;
-		char[] newBuffer = new char[closestGreaterPowerOf2(getPosition())];
-		System.arraycopy(buffer, 0, newBuffer, 0, bufferNextIndex);
+	private void ensureBufferCapacity(int wanted) {
+		int used = bufferNextIndex - bufferStart;
+		if (buffer.length - used >= wanted) return;
+		
+		if (rewindLimit >= 0) {
+			discardBuffer();
+			used = bufferNextIndex - bufferStart;
+			
+			// Do not grow the buffer just to skip characters that are discarded anyway
+			wanted = Math.min(wanted, readAhead);
+			if (buffer.length - used >= wanted) return;
+		}
+		
+		char[] newBuffer = new char[closestGreaterPowerOf2(used + wanted - 1)];
+		System.arraycopy(buffer, 0, newBuffer, 0, used);
 		buffer = newBuffer;
 	}
 	
 	/**
+	 * Drops the characters that can no longer be reached by {@link #reset()} or within
+	 * the rewind limit, moving the rest to the beginning of the buffer.
+	 */
+	private void discardBuffer() {
+		int keepFrom = Math.min(getLowestMark(), getPosition() - rewindLimit);
+		keepFrom = Math.min(Math.max(keepFrom, bufferStart), bufferNextIndex);
+		
+		if (keepFrom == bufferStart) return;
+		
+		System.arraycopy(buffer, keepFrom - bufferStart, buffer, 0, bufferNextIndex - keepFrom);
+		bufferStart = keepFrom;
+	}
+	
+	/**
+	 * @return the amount of characters before the current position that are guaranteed
+	 * to be available, or a negative value if all characters are kept
+	 * @see #setRewindLimit(int)
+	 */
+	public int getRewindLimit() {
+		return rewindLimit;
+	}
+	
+	/**
+	 * Enables or disables the sliding window mode. By default this reader keeps all
+	 * characters it has pulled. In sliding window mode the characters that lie before
+	 * both the lowest outstanding {@link #mark() mark} and the current position minus
+	 * <code>rewindLimit</code> are discarded as new characters are pulled, so the buffer
+	 * only grows as far as marks and the rewind limit require.
+	 * <p>
+	 * Moving to a discarded position causes {@link #current()} to throw an
+	 * {@link IllegalStateException}.
+	 * 
+	 * @param rewindLimit the amount of characters before the current position that must
+	 * remain available, or a negative value to keep all characters
+	 * @return this object
+	 */
+	public BufferedCharReader setRewindLimit(int rewindLimit) {
+		this.rewindLimit = rewindLimit;
+		return this;
+	}
+	
+	/**
+	 * Starts recording line starts as characters are pulled. Characters pulled before
+	 * this call are indexed immediately, so this method fails if some of them have
+	 * already been discarded.
+	 * 
+	 * @return the line index of this reader
+	 * @throws IllegalStateException if characters have been discarded before the index was created
+	 * @see #getLineIndex()
+	 */
+	public LineIndex indexLines() {
+		if (lineIndex == null) {
+			if (bufferStart != 0) {
+				throw new IllegalStateException(
+						"Cannot index lines: characters before position " + bufferStart + " have been discarded"
+				);
+			}
+			
+			LineIndex result = new LineIndex();
+			result.index(buffer, 0, bufferNextIndex);
+			lineIndex = result;
+		}
+		
+		return lineIndex;
+	}
+	
+	/**
+	 * @return the line index of this reader or <code>null</code> if {@link #indexLines()}
+	 * has not been called
+	 */
+	public LineIndex getLineIndex() {
+		return lineIndex;
+	}
+	
+	/**
+	 * Returns a view of the buffer unless a rewind limit is set, in which case
+	 * the characters are copied.
+	 * @see ru.windcorp.jputil.chars.reader.CharReader#viewUntil(CharPredicate)
+	 */
+	@Override
+	public CharSequence viewUntil(CharPredicate condition) {
+		if (rewindLimit >= 0) {
+			return super.viewUntil(condition);
+		}
+		
+		// isEnd() fails if the current position has been discarded
+		if (isEnd()) return "";
+		
+		int start = getPosition();
+		while (!isEnd() && !condition.test(current())) {
+			next();
+		}
+		
+		return CharBuffer.wrap(buffer, start - bufferStart, getPosition() - start);
+	}
+	
+	/**
+	 * Pulls all remaining characters into the buffer and counts them. No mark is set,
+	 * so in sliding window mode the characters before the current position are still
+	 * discarded as usual; the remaining characters have to be kept to be read later.
 	 * @see ru.windcorp.jputil.chars.reader.CharReader#remaining()
 	 */
 	@Override
 	public int remaining() {
-		if (exhausted) {
-			return Math.max(bufferNextIndex - getPosition(), 0);
+		while (!exhausted) {
+			ensureBufferCapacity(readAhead);
+			bufferNextIndex += pullChars(bufferNextIndex - bufferStart, bufferStart + buffer.length - bufferNextIndex);
 		}
 		
-		return super.remaining();
+		return Math.max(bufferNextIndex - getPosition(), 0);
+	}
+	
+	/**
+	 * In sliding window mode only the characters that are still buffered are shown and
+	 * no characters are pulled.
+	 * @see ru.windcorp.jputil.chars.reader.AbstractCharReader#toString()
+	 */
+	@Override
+	public String toString() {
+		if (rewindLimit < 0) {
+			return super.toString();
+		}
+		
+		StringBuilder sb = new StringBuilder("\"");
+		sb.append(buffer, 0, bufferNextIndex - bufferStart);
+		
+		sb.append("\"\n ");
+		for (int i = bufferStart; i < getPosition(); ++i) sb.append(' ');
+		sb.append("^ (pos " + getPosition() + ", buffer starts at " + bufferStart + ")");
+		return sb.toString();
 	}
 
 }
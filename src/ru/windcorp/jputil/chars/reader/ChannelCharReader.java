@@ -0,0 +1,185 @@
+/*
+ * JPUtil
+ * Copyright (C) 2019  Javapony/OLEGSHA
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package ru.windcorp.jputil.chars.reader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Objects;
+
+/**
+ * A {@link CharReader} that decodes bytes read from a blocking {@link ReadableByteChannel}
+ * into a direct {@link ByteBuffer}.
+ * <p>
+ * Malformed input is replaced with <code>U+FFFD</code> and reported with
+ * {@link #getLastException()}.
+ *
+ * @author Javapony
+ *
+ */
+public class ChannelCharReader extends BufferedCharReader implements Closeable {
+
+	protected static final int DEFAULT_BYTE_BUFFER_SIZE = 64 * 1024;
+	protected static final int DEFAULT_BLOCK_SIZE = 4096;
+
+	private static final int MIN_BYTE_BUFFER_SIZE = 16;
+	private static final char REPLACEMENT = '\uFFFD';
+
+	private final ReadableByteChannel src;
+	private final CharsetDecoder decoder;
+
+	/**
+	 * Undecoded bytes. Always in read mode.
+	 */
+	private final ByteBuffer bytes;
+
+	private boolean endOfInput = false;
+	private boolean flushed = false;
+
+	private final char[] singleChar = new char[1];
+
+	private IOException lastException = null;
+
+	/**
+	 * @param src the channel to read from
+	 * @param charset the charset to decode
+	 * @param byteBufferSize the size of the direct byte buffer
+	 * @param blockSize the minimum amount of characters decoded at once
+	 */
+	public ChannelCharReader(ReadableByteChannel src, Charset charset, int byteBufferSize, int blockSize) {
+		super(blockSize);
+		this.src = Objects.requireNonNull(src, "src");
+		this.decoder = Objects.requireNonNull(charset, "charset").newDecoder()
+				.onMalformedInput(CodingErrorAction.REPORT)
+				.onUnmappableCharacter(CodingErrorAction.REPORT);
+
+		if (byteBufferSize < MIN_BYTE_BUFFER_SIZE)
+			throw new IllegalArgumentException("byteBufferSize must be at least " + MIN_BYTE_BUFFER_SIZE + " (" + byteBufferSize + ")");
+
+		this.bytes = ByteBuffer.allocateDirect(byteBufferSize);
+		this.bytes.flip();
+	}
+
+	public ChannelCharReader(ReadableByteChannel src, Charset charset) {
+		this(src, charset, DEFAULT_BYTE_BUFFER_SIZE, DEFAULT_BLOCK_SIZE);
+	}
+
+	/**
+	 * @see ru.windcorp.jputil.chars.reader.BufferedCharReader#pullChar()
+	 */
+	@Override
+	protected char pullChar() {
+		if (pullChars(singleChar, 0, 1) <= 0) return DONE;
+		return singleChar[0];
+	}
+
+	/**
+	 * @see ru.windcorp.jputil.chars.reader.BufferedCharReader#pullChars(char[], int, int)
+	 */
+	@Override
+	protected int pullChars(char[] buffer, int offset, int length) {
+		if (flushed) return -1;
+
+		CharBuffer out = CharBuffer.wrap(buffer, offset, length);
+
+		while (out.hasRemaining()) {
+			CoderResult result = decoder.decode(bytes, out, endOfInput);
+
+			if (result.isOverflow()) break;
+
+			if (result.isError()) {
+				// The decoder may report an error with a full buffer; replace the sequence next time
+				if (!out.hasRemaining()) break;
+				
+				if (lastException == null) {
+					try {
+						result.throwException();
+					} catch (IOException e) {
+						lastException = e;
+					}
+				}
+
+				bytes.position(bytes.position() + result.length());
+				out.put(REPLACEMENT);
+				continue;
+			}
+
+			if (endOfInput) {
+				if (decoder.flush(out).isUnderflow()) {
+					flushed = true;
+				}
+				break;
+			}
+
+			// Do not block if some characters are ready
+			if (out.position() != offset) break;
+
+			fillBytes();
+		}
+
+		int pulled = out.position() - offset;
+		return pulled == 0 ? -1 : pulled;
+	}
+
+	private void fillBytes() {
+		bytes.compact();
+
+		try {
+			if (src.read(bytes) < 0) {
+				endOfInput = true;
+			}
+		} catch (IOException e) {
+			lastException = e;
+			endOfInput = true;
+		} finally {
+			bytes.flip();
+		}
+	}
+
+	/**
+	 * @see ru.windcorp.jputil.chars.reader.CharReader#getLastException()
+	 */
+	@Override
+	public IOException getLastException() {
+		return lastException;
+	}
+
+	/**
+	 * @see ru.windcorp.jputil.chars.reader.CharReader#resetLastException()
+	 */
+	@Override
+	public void resetLastException() {
+		lastException = null;
+	}
+
+	/**
+	 * Closes the underlying channel.
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		src.close();
+	}
+
+}
@@ -18,8 +18,10 @@
 package ru.windcorp.jputil.chars.reader;
 
 import java.io.IOException;
+import java.nio.CharBuffer;
 import java.util.Arrays;
 
+import ru.windcorp.jputil.chars.CharConsumer;
 import ru.windcorp.jputil.chars.CharPredicate;
 import ru.windcorp.jputil.chars.EscapeException;
 import ru.windcorp.jputil.chars.Escaper;
@@ -91,6 +93,33 @@ public interface CharReader {
 		return getChars(output, 0, output.length);
 	}
 	
+	/**
+	 * Passes up to <code>length</code> next characters to <code>output</code> in blocks
+	 * with {@link CharConsumer#accept(char[], int, int)}.
+	 * @param output the consumer to receive the characters
+	 * @param length the maximum amount of characters, or a negative value to pass all
+	 * remaining characters
+	 * @return the amount of characters passed
+	 */
+	default int getChars(CharConsumer output, int length) {
+		if (length < 0) length = Integer.MAX_VALUE;
+		
+		char[] block = new char[Math.min(length, 1024)];
+		int total = 0;
+		
+		while (total < length) {
+			int wanted = Math.min(block.length, length - total);
+			int read = getChars(block, 0, wanted);
+			
+			output.accept(block, 0, read);
+			total += read;
+			
+			if (read < wanted) break;
+		}
+		
+		return total;
+	}
+	
 	default char[] getChars(int length) {
 		char[] result = new char[length];
 		int from = getChars(result);
@@ -166,7 +195,7 @@ public interface CharReader {
 	}
 	
 	default int skipWhitespace() {
-		return skip(Character::isWhitespace);
+		return skip(CharPredicate.WHITESPACE);
 	}
 	
 	/**
@@ -215,7 +244,7 @@ public interface CharReader {
 	
 	default char[] readWord() {
 		skipWhitespace();
-		return readUntil(Character::isWhitespace);
+		return readUntil(CharPredicate.WHITESPACE);
 	}
 	
 	default char[] readWord(Escaper escaper, char quotes) throws EscapeException {
@@ -238,13 +267,50 @@ public interface CharReader {
 		return result;
 	}
 	
+	/**
+	 * Reads characters until the condition is met or the end is reached, like
+	 * {@link #readUntil(CharPredicate)}, but returns a view that may share storage
+	 * with this reader instead of a copy. The returned sequence does not change when
+	 * this reader is advanced further. Use {@link CharSequence#toString()} to obtain
+	 * a <code>String</code>.
+	 * <p>
+	 * The default implementation copies the characters.
+	 * @param condition the condition that terminates the sequence
+	 * @return the characters read
+	 */
+	default CharSequence viewUntil(CharPredicate condition) {
+		return CharBuffer.wrap(readUntil(condition));
+	}
+	
+	default CharSequence viewWhile(CharPredicate condition) {
+		return viewUntil(CharPredicate.negate(condition));
+	}
+	
+	default CharSequence viewWord() {
+		skipWhitespace();
+		return viewUntil(CharPredicate.WHITESPACE);
+	}
+	
+	/**
+	 * Reads the current line like {@link #readLine()}, but returns a view as described in
+	 * {@link #viewUntil(CharPredicate)}. As with {@link #readLine()}, the line separator
+	 * is neither included nor consumed.
+	 * @return the characters of the line
+	 */
+	default CharSequence viewLine() {
+		return viewUntil(c -> c == '\n' || c == '\r');
+	}
+	
 	default int remaining() {
 		mark();
 		int result = 0;
 		
-		while (consume() != DONE) result++;
+		try {
+			while (consume() != DONE) result++;
+		} finally {
+			reset();
+		}
 		
-		reset();
 		return result;
 	}
 
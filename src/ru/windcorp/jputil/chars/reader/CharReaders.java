@@ -17,11 +17,18 @@
  */
 package ru.windcorp.jputil.chars.reader;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.text.CharacterIterator;
 import java.util.function.IntSupplier;
 
@@ -97,6 +104,25 @@ public class CharReaders {
 		return new ReaderCharReader(reader);
 	}
 	
+	public static CharReader wrap(Reader reader, int blockSize) {
+		return new ReaderCharReader(reader, blockSize);
+	}
+	
+	/**
+	 * Wraps the reader in sliding window mode, keeping only the characters reachable
+	 * with {@link CharReader#reset()} or within <code>rewindLimit</code> characters
+	 * before the current position.
+	 * @param reader the reader to wrap
+	 * @param rewindLimit the amount of characters that must remain available before the current position
+	 * @return a new {@link CharReader}
+	 * @see BufferedCharReader#setRewindLimit(int)
+	 */
+	public static CharReader wrapStreaming(Reader reader, int rewindLimit) {
+		if (rewindLimit < 0)
+			throw new IllegalArgumentException("rewindLimit must be non-negative (" + rewindLimit + ")");
+		return new ReaderCharReader(reader).setRewindLimit(rewindLimit);
+	}
+	
 	public static CharReader wrap(InputStream is, Charset charset) {
 		return wrap(new InputStreamReader(is, charset));
 	}
@@ -105,8 +131,145 @@ public class CharReaders {
 		return wrap(new InputStreamReader(is));
 	}
 	
+	/**
+	 * Wraps the stream with a {@link UTF8CharReader}. Malformed input is replaced with
+	 * <code>U+FFFD</code> and reported with {@link CharReader#getLastException()}.
+	 * @param is the stream to decode
+	 * @return a new {@link CharReader}
+	 */
 	public static CharReader wrapUTF8(InputStream is) {
-		return wrap(new InputStreamReader(is, StandardCharsets.UTF_8));
+		return new UTF8CharReader(is);
+	}
+	
+	/**
+	 * Creates a reader that decodes the given channel mapped into memory.
+	 * The channel is not closed by the reader.
+	 * @param channel the channel to map
+	 * @param charset the charset of the file
+	 * @return a new {@link MappedCharReader}
+	 * @throws IOException if the size of the channel could not be determined
+	 * @see MappedCharReader
+	 */
+	public static MappedCharReader map(FileChannel channel, Charset charset) throws IOException {
+		return new MappedCharReader(channel, charset, false);
+	}
+	
+	/**
+	 * Opens the given file and creates a reader that decodes it mapped into memory.
+	 * The file is closed when the returned reader is closed.
+	 * @param path the file to map
+	 * @param charset the charset of the file
+	 * @return a new {@link MappedCharReader}
+	 * @throws IOException if the file could not be opened
+	 * @see MappedCharReader
+	 */
+	public static MappedCharReader map(Path path, Charset charset) throws IOException {
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			return new MappedCharReader(channel, charset, true);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+	
+	public static MappedCharReader mapUTF8(Path path) throws IOException {
+		return map(path, StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * Wraps the channel with a {@link ChannelCharReader}. Closing the returned reader
+	 * closes the channel.
+	 * @param channel a blocking channel to read from
+	 * @param charset the charset to decode
+	 * @return a new {@link ChannelCharReader}
+	 */
+	public static ChannelCharReader wrap(ReadableByteChannel channel, Charset charset) {
+		return new ChannelCharReader(channel, charset);
+	}
+	
+	/**
+	 * Wraps the channel with a {@link ChannelCharReader} that requests the next block
+	 * of the file in the background while the current one is decoded and parsed.
+	 * Closing the returned reader closes the channel.
+	 * @param channel the channel to read from
+	 * @param position the position in the file to start reading at
+	 * @param charset the charset to decode
+	 * @return a new {@link ChannelCharReader}
+	 */
+	public static ChannelCharReader wrapAsync(AsynchronousFileChannel channel, long position, Charset charset) {
+		return new ChannelCharReader(
+				new PrefetchingByteChannel(channel, position, ChannelCharReader.DEFAULT_BYTE_BUFFER_SIZE),
+				charset
+		);
+	}
+	
+	/**
+	 * Opens the file and wraps it as described in
+	 * {@link #wrapAsync(AsynchronousFileChannel, long, Charset)}.
+	 * @param path the file to read
+	 * @param charset the charset to decode
+	 * @return a new {@link ChannelCharReader}
+	 * @throws IOException if the file could not be opened
+	 */
+	public static ChannelCharReader wrapAsync(Path path, Charset charset) throws IOException {
+		AsynchronousFileChannel channel = AsynchronousFileChannel.open(path, StandardOpenOption.READ);
+		try {
+			return wrapAsync(channel, 0, charset);
+		} catch (RuntimeException | Error e) {
+			// Allocating the direct buffer or starting the first read may fail
+			channel.close();
+			throw e;
+		}
+	}
+	
+	/**
+	 * Splits the array into line-aligned chunks of at least <code>minChunkSize</code>
+	 * characters that can be read in parallel.
+	 * @param array the array to split
+	 * @param offset index of the first character
+	 * @param length the amount of characters
+	 * @param minChunkSize the minimum length of a chunk
+	 * @return a new {@link LineChunkSpliterator} of {@link ArrayCharReader}s
+	 */
+	public static LineChunkSpliterator splitLines(char[] array, int offset, int length, int minChunkSize) {
+		if (offset < 0 || length < 0 || offset + length > array.length)
+			throw new IllegalArgumentException("Array contains [0; " + array.length + "), requested [" + offset + "; " + (offset + length) + ")");
+		return new LineChunkSpliterator.ArrayChunks(array, offset, offset + length, minChunkSize);
+	}
+	
+	/**
+	 * Splits the string into line-aligned chunks of at least <code>minChunkSize</code>
+	 * characters that can be read in parallel.
+	 * @param str the string to split
+	 * @param minChunkSize the minimum length of a chunk
+	 * @return a new {@link LineChunkSpliterator} of {@link StringCharReader}s
+	 */
+	public static LineChunkSpliterator splitLines(String str, int minChunkSize) {
+		return new LineChunkSpliterator.StringChunks(str, 0, str.length(), minChunkSize);
+	}
+	
+	/**
+	 * Splits the file into chunks of at least <code>minChunkSize</code> bytes that
+	 * end with a <code>'\n'</code> byte. The chunks are {@link MappedCharReader}s that
+	 * share the channel; the channel must stay open until all chunks have been read.
+	 * <p>
+	 * The charset must encode <code>'\n'</code> as a single <code>0x0A</code> byte that
+	 * never occurs inside other characters. This holds for UTF-8 and ASCII-compatible
+	 * single-byte charsets.
+	 * 
+	 * @param channel the file to split
+	 * @param charset the charset of the file
+	 * @param minChunkSize the minimum size of a chunk in bytes
+	 * @return a new {@link LineChunkSpliterator} of {@link MappedCharReader}s
+	 * @throws IOException if the size of the channel could not be determined
+	 */
+	public static LineChunkSpliterator splitLines(FileChannel channel, Charset charset, int minChunkSize) throws IOException {
+		ByteBuffer newline = charset.encode("\n");
+		if (newline.remaining() != 1 || newline.get(0) != '\n')
+			throw new IllegalArgumentException("Charset " + charset + " does not encode '\\n' as a single byte");
+		
+		return new LineChunkSpliterator.MappedChunks(channel, charset, 0, channel.size(), minChunkSize);
 	}
 
 }
@@ -0,0 +1,258 @@
+/*
+ * JPUtil
+ * Copyright (C) 2019  Javapony/OLEGSHA
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package ru.windcorp.jputil.chars.reader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * A {@link Spliterator} that cuts its input into chunks that start at the beginning of a line
+ * and end right after a <code>'\n'</code> or at the end of input. Each chunk is an independent
+ * {@link CharReader}, so chunks can be processed in parallel, for example with
+ * {@link java.util.stream.StreamSupport#stream(Spliterator, boolean) StreamSupport.stream(spliterator, true)}.
+ * <p>
+ * {@link #trySplit()} halves the remaining input, moving the split point forward to the
+ * next line boundary, until the parts would be smaller than the minimum chunk size.
+ * {@link #tryAdvance(Consumer)} returns the next chunk of about the minimum chunk size, ending
+ * at the first line boundary after the minimum size; the tail of the input is merged into the
+ * last chunk if it would be smaller than the minimum.
+ * <p>
+ * Instances are created with {@link CharReaders#splitLines(char[], int, int, int)},
+ * {@link CharReaders#splitLines(String, int)} and
+ * {@link CharReaders#splitLines(FileChannel, Charset, int)}.
+ *
+ * @author Javapony
+ *
+ */
+public abstract class LineChunkSpliterator implements Spliterator<CharReader> {
+
+	/**
+	 * The remaining input is <code>[start; end)</code>, measured in the units of the
+	 * implementation.
+	 */
+	private long start;
+	private final long end;
+
+	private final long minChunkSize;
+
+	protected LineChunkSpliterator(long start, long end, long minChunkSize) {
+		if (minChunkSize <= 0)
+			throw new IllegalArgumentException("minChunkSize must be positive (" + minChunkSize + ")");
+
+		this.start = start;
+		this.end = end;
+		this.minChunkSize = minChunkSize;
+	}
+
+	/**
+	 * Finds the beginning of the first line that starts after <code>from</code>.
+	 * @param from the index to search from, in <code>(start; end)</code>
+	 * @param limit the index to stop at
+	 * @return the index right after the first <code>'\n'</code> in <code>[from - 1; limit)</code>,
+	 * or a negative value if there is none
+	 */
+	protected abstract long findLineStart(long from, long limit);
+
+	/**
+	 * @return a reader for <code>[chunkStart; chunkEnd)</code>
+	 */
+	protected abstract CharReader createChunk(long chunkStart, long chunkEnd);
+
+	/**
+	 * @return a spliterator over <code>[prefixStart; prefixEnd)</code> of the same input
+	 */
+	protected abstract LineChunkSpliterator createPrefix(long prefixStart, long prefixEnd);
+
+	/**
+	 * @see java.util.Spliterator#tryAdvance(java.util.function.Consumer)
+	 */
+	@Override
+	public boolean tryAdvance(Consumer<? super CharReader> action) {
+		if (start >= end) return false;
+
+		long chunkEnd = end;
+		if (end - start >= 2 * minChunkSize) {
+			long lineStart = findLineStart(start + minChunkSize, end - minChunkSize);
+			if (lineStart > start) chunkEnd = lineStart;
+		}
+
+		CharReader chunk = createChunk(start, chunkEnd);
+		start = chunkEnd;
+		action.accept(chunk);
+		return true;
+	}
+
+	/**
+	 * @see java.util.Spliterator#trySplit()
+	 */
+	@Override
+	public Spliterator<CharReader> trySplit() {
+		if (end - start < 2 * minChunkSize) return null;
+
+		long splitPoint = findLineStart(start + (end - start) / 2, end - minChunkSize);
+		if (splitPoint <= start || splitPoint >= end) return null;
+
+		LineChunkSpliterator prefix = createPrefix(start, splitPoint);
+		start = splitPoint;
+		return prefix;
+	}
+
+	/**
+	 * Returns the amount of minimum-sized chunks the remaining input could be split into.
+	 * @see java.util.Spliterator#estimateSize()
+	 */
+	@Override
+	public long estimateSize() {
+		if (start >= end) return 0;
+		return Math.max((end - start) / minChunkSize, 1);
+	}
+
+	/**
+	 * @see java.util.Spliterator#characteristics()
+	 */
+	@Override
+	public int characteristics() {
+		return ORDERED | NONNULL | IMMUTABLE;
+	}
+
+	protected long getMinChunkSize() {
+		return minChunkSize;
+	}
+
+	static class ArrayChunks extends LineChunkSpliterator {
+
+		private final char[] array;
+
+		ArrayChunks(char[] array, int start, int end, long minChunkSize) {
+			super(start, end, minChunkSize);
+			this.array = array;
+		}
+
+		@Override
+		protected long findLineStart(long from, long limit) {
+			for (int i = (int) from - 1; i < limit; ++i) {
+				if (array[i] == '\n') return i + 1;
+			}
+			return -1;
+		}
+
+		@Override
+		protected CharReader createChunk(long chunkStart, long chunkEnd) {
+			return new ArrayCharReader(array, (int) chunkStart, (int) (chunkEnd - chunkStart));
+		}
+
+		@Override
+		protected LineChunkSpliterator createPrefix(long prefixStart, long prefixEnd) {
+			return new ArrayChunks(array, (int) prefixStart, (int) prefixEnd, getMinChunkSize());
+		}
+
+	}
+
+	static class StringChunks extends LineChunkSpliterator {
+
+		private final String str;
+
+		StringChunks(String str, int start, int end, long minChunkSize) {
+			super(start, end, minChunkSize);
+			this.str = str;
+		}
+
+		@Override
+		protected long findLineStart(long from, long limit) {
+			int index = str.indexOf('\n', (int) from - 1);
+			return index < 0 || index >= limit ? -1 : index + 1;
+		}
+
+		@Override
+		protected CharReader createChunk(long chunkStart, long chunkEnd) {
+			return new StringCharReader(str, (int) chunkStart, (int) (chunkEnd - chunkStart));
+		}
+
+		@Override
+		protected LineChunkSpliterator createPrefix(long prefixStart, long prefixEnd) {
+			return new StringChunks(str, (int) prefixStart, (int) prefixEnd, getMinChunkSize());
+		}
+
+	}
+
+	/**
+	 * Splits a file at <code>'\n'</code> bytes. Chunks are {@link MappedCharReader}s
+	 * that share the channel and do not close it.
+	 */
+	static class MappedChunks extends LineChunkSpliterator {
+
+		private static final int SEARCH_BUFFER_SIZE = 8 * 1024;
+
+		private final FileChannel channel;
+		private final Charset charset;
+
+		MappedChunks(FileChannel channel, Charset charset, long start, long end, long minChunkSize) {
+			super(start, end, minChunkSize);
+			this.channel = channel;
+			this.charset = charset;
+		}
+
+		/**
+		 * Reads the file with positional reads, so several threads may split the same channel.
+		 * Gives up on I/O errors; the chunk that covers the failing region reports the error.
+		 */
+		@Override
+		protected long findLineStart(long from, long limit) {
+			ByteBuffer buffer = ByteBuffer.allocate(SEARCH_BUFFER_SIZE);
+			long bufferStart = from - 1;
+
+			try {
+				while (bufferStart < limit) {
+					buffer.clear();
+					int read = channel.read(buffer, bufferStart);
+					if (read <= 0) return -1;
+
+					for (int i = 0; i < read && bufferStart + i < limit; ++i) {
+						if (buffer.get(i) == '\n') return bufferStart + i + 1;
+					}
+
+					bufferStart += read;
+				}
+			} catch (IOException e) {
+				return -1;
+			}
+
+			return -1;
+		}
+
+		@Override
+		protected CharReader createChunk(long chunkStart, long chunkEnd) {
+			return new MappedCharReader(
+					channel, charset, false,
+					chunkStart, chunkEnd - chunkStart,
+					MappedCharReader.DEFAULT_WINDOW_SIZE, MappedCharReader.DEFAULT_BLOCK_SIZE
+			);
+		}
+
+		@Override
+		protected LineChunkSpliterator createPrefix(long prefixStart, long prefixEnd) {
+			return new MappedChunks(channel, charset, prefixStart, prefixEnd, getMinChunkSize());
+		}
+
+	}
+
+}
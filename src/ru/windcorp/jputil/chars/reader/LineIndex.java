@@ -0,0 +1,170 @@
+/*
+ * JPUtil
+ * Copyright (C) 2019  Javapony/OLEGSHA
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package ru.windcorp.jputil.chars.reader;
+
+import java.util.Arrays;
+
+/**
+ * Maps positions to line and column numbers. Characters are fed to the index in order
+ * with {@link #index(char[], int, int)}; the index only stores the positions at which
+ * lines start, so lookups are a binary search over an <code>int</code> array.
+ * <p>
+ * Lines are terminated by <code>"\n"</code>, <code>"\r"</code> or <code>"\r\n"</code>,
+ * like in {@link java.io.LineNumberReader}. Line and column numbers start at 0.
+ *
+ * @author Javapony
+ *
+ */
+public class LineIndex {
+
+	private static final int DEFAULT_CAPACITY = 64;
+
+	/**
+	 * Line <code>i</code> starts at position <code>lineStarts[i]</code>.
+	 */
+	private int[] lineStarts = new int[DEFAULT_CAPACITY];
+	private int lines = 1;
+
+	/**
+	 * The amount of characters indexed so far.
+	 */
+	private int length = 0;
+
+	private boolean lastWasCR = false;
+
+	public static LineIndex of(char[] array, int offset, int length) {
+		LineIndex result = new LineIndex();
+		result.index(array, offset, length);
+		return result;
+	}
+
+	public static LineIndex of(char[] array) {
+		return of(array, 0, array.length);
+	}
+
+	public static LineIndex of(CharSequence str) {
+		LineIndex result = new LineIndex();
+		for (int i = 0; i < str.length(); ++i) {
+			result.index(str.charAt(i));
+		}
+		return result;
+	}
+
+	/**
+	 * Indexes the next character.
+	 * @param c the character at position {@link #getLength()}
+	 */
+	public void index(char c) {
+		index(c, length);
+		length++;
+	}
+
+	/**
+	 * Indexes the next characters.
+	 * @param chars the array that contains the characters starting at position {@link #getLength()}
+	 * @param offset index of the first character
+	 * @param length the amount of characters to index
+	 */
+	public void index(char[] chars, int offset, int length) {
+		int end = offset + length;
+		int positionOffset = this.length - offset;
+
+		for (int i = offset; i < end; ++i) {
+			char c = chars[i];
+			if (c > '\r') {
+				lastWasCR = false;
+			} else {
+				index(c, i + positionOffset);
+			}
+		}
+
+		this.length += length;
+	}
+
+	private void index(char c, int position) {
+		if (c == '\n') {
+			if (lastWasCR) {
+				// "\r\n": the line starts after '\n', not after '\r'
+				lineStarts[lines - 1]++;
+			} else {
+				addLine(position + 1);
+			}
+		} else if (c == '\r') {
+			addLine(position + 1);
+		}
+
+		lastWasCR = c == '\r';
+	}
+
+	private void addLine(int start) {
+		if (lines == lineStarts.length) {
+			lineStarts = Arrays.copyOf(lineStarts, AbstractCharReader.closestGreaterPowerOf2(lines));
+		}
+
+		lineStarts[lines++] = start;
+	}
+
+	/**
+	 * Returns the line that contains the given position. Positions beyond
+	 * {@link #getLength()} are reported to lie on the last indexed line.
+	 * @param position the position to look up
+	 * @return the line number, starting at 0
+	 */
+	public int lineOf(int position) {
+		if (position < 0)
+			throw new IllegalArgumentException("Position " + position + " is invalid");
+
+		int index = Arrays.binarySearch(lineStarts, 0, lines, position);
+		return index >= 0 ? index : -index - 2;
+	}
+
+	/**
+	 * Returns the offset of the given position within its line.
+	 * @param position the position to look up
+	 * @return the column number, starting at 0
+	 * @see #lineOf(int)
+	 */
+	public int columnOf(int position) {
+		return position - getLineStart(lineOf(position));
+	}
+
+	/**
+	 * @param line the line number, starting at 0
+	 * @return the position of the first character of the line
+	 */
+	public int getLineStart(int line) {
+		if (line < 0 || line >= lines)
+			throw new IllegalArgumentException("Line " + line + " has not been indexed (" + lines + " lines)");
+		return lineStarts[line];
+	}
+
+	/**
+	 * @return the amount of lines indexed so far, including the current unfinished line
+	 */
+	public int getLineCount() {
+		return lines;
+	}
+
+	/**
+	 * @return the amount of characters indexed so far
+	 */
+	public int getLength() {
+		return length;
+	}
+
+}
@@ -0,0 +1,375 @@
+/*
+ * JPUtil
+ * Copyright (C) 2019  Javapony/OLEGSHA
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package ru.windcorp.jputil.chars.reader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A {@link CharReader} that decodes a file mapped into memory with
+ * {@link FileChannel#map(FileChannel.MapMode, long, long)}.
+ * <p>
+ * The file is mapped in windows of {@link #DEFAULT_WINDOW_SIZE} bytes and decoded
+ * into a single block of {@link #DEFAULT_BLOCK_SIZE} characters. For every decoded
+ * block the reader remembers the byte offset it started at, so seeking backwards
+ * only re-decodes one block and never keeps the decoded file on the heap.
+ * <p>
+ * The charset must be decodable from any character boundary with a freshly reset
+ * decoder (this holds for UTF-8, ISO-8859-1, US-ASCII and most single-byte charsets).
+ * Errors are reported with {@link #getLastException()} and treated as the end of input.
+ * <p>
+ * Positions are <code>int</code>s, so at most {@link Integer#MAX_VALUE} characters can be
+ * read; files may be larger than 2 GiB as long as they decode to fewer characters.
+ * Reading past that limit throws an {@link IllegalStateException}.
+ *
+ * @author Javapony
+ *
+ */
+public class MappedCharReader extends AbstractCharReader implements Closeable {
+
+	protected static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+	protected static final int DEFAULT_BLOCK_SIZE = 8 * 1024;
+
+	private static final int MIN_WINDOW_SIZE = 16;
+	private static final int DEFAULT_CHECKPOINTS = 64;
+
+	private final FileChannel channel;
+	private final boolean closeChannel;
+	private final int windowSize;
+
+	/**
+	 * The end of the decoded byte range.
+	 */
+	private final long byteEnd;
+
+	private final CharsetDecoder decoder;
+
+	/**
+	 * Currently mapped region of the file. Contains bytes <code>[windowStart; windowStart + window.limit())</code>.
+	 */
+	private ByteBuffer window = null;
+	private long windowStart = 0;
+
+	/**
+	 * Decoded characters for positions <code>[blockStart; blockStart + blockLength)</code>.
+	 */
+	private final char[] block;
+	private int blockStart = 0;
+	private int blockLength = 0;
+
+	/**
+	 * Block <code>i</code> starts at position <code>blockChars[i]</code> and byte <code>blockBytes[i]</code>.
+	 * The last checkpoint marks the first block that has not been decoded yet.
+	 */
+	private int[] blockChars = new int[DEFAULT_CHECKPOINTS];
+	private long[] blockBytes = new long[DEFAULT_CHECKPOINTS];
+	private int checkpoints = 1;
+
+	/**
+	 * Whether the end of the file has been decoded.
+	 */
+	private boolean exhausted = false;
+
+	/**
+	 * Line index fed with newly decoded blocks, or <code>null</code>.
+	 * @see #indexLines()
+	 */
+	private LineIndex lineIndex = null;
+
+	private IOException lastException = null;
+
+	/**
+	 * Creates a reader that decodes bytes <code>[byteOffset; byteOffset + byteLength)</code>
+	 * of the channel. The range must start at a character boundary and must not
+	 * exceed the size of the channel.
+	 */
+	public MappedCharReader(FileChannel channel, Charset charset, boolean closeChannel, long byteOffset, long byteLength, int windowSize, int blockSize) {
+		this.channel = Objects.requireNonNull(channel, "channel");
+		this.closeChannel = closeChannel;
+
+		if (byteOffset < 0 || byteLength < 0)
+			throw new IllegalArgumentException("Invalid byte range: offset " + byteOffset + ", length " + byteLength);
+
+		this.blockBytes[0] = byteOffset;
+		this.byteEnd = byteOffset + byteLength;
+
+		if (windowSize < MIN_WINDOW_SIZE)
+			throw new IllegalArgumentException("windowSize must be at least " + MIN_WINDOW_SIZE + " (" + windowSize + ")");
+		if (blockSize < 2)
+			throw new IllegalArgumentException("blockSize must be at least 2 (" + blockSize + ")");
+
+		this.windowSize = windowSize;
+		this.block = new char[blockSize];
+
+		this.decoder = Objects.requireNonNull(charset, "charset").newDecoder()
+				.onMalformedInput(CodingErrorAction.REPORT)
+				.onUnmappableCharacter(CodingErrorAction.REPORT);
+	}
+
+	public MappedCharReader(FileChannel channel, Charset charset, boolean closeChannel, int windowSize, int blockSize) throws IOException {
+		this(channel, charset, closeChannel, 0, channel.size(), windowSize, blockSize);
+	}
+
+	public MappedCharReader(FileChannel channel, Charset charset, boolean closeChannel) throws IOException {
+		this(channel, charset, closeChannel, DEFAULT_WINDOW_SIZE, DEFAULT_BLOCK_SIZE);
+	}
+
+	/**
+	 * @see ru.windcorp.jputil.chars.reader.CharReader#current()
+	 */
+	@Override
+	public char current() {
+		if (position < 0)
+			throw new IllegalStateException("Position " + position + " is invalid");
+
+		int index = position - blockStart;
+		if (index >= 0 && index < blockLength) {
+			return block[index];
+		}
+
+		if (!loadBlock(position)) return DONE;
+		return block[position - blockStart];
+	}
+
+	/**
+	 * Copies decoded blocks at once.
+	 * @see ru.windcorp.jputil.chars.reader.CharReader#getChars(char[], int, int)
+	 */
+	@Override
+	public int getChars(char[] output, int offset, int length) {
+		int copied = 0;
+
+		// current() loads the block that contains the position
+		while (copied < length && current() != DONE) {
+			int count = Math.min(blockStart + blockLength - position, length - copied);
+			System.arraycopy(block, position - blockStart, output, offset + copied, count);
+			position += count;
+			copied += count;
+		}
+
+		return copied;
+	}
+
+	/**
+	 * @see ru.windcorp.jputil.chars.reader.CharReader#remaining()
+	 */
+	@Override
+	public int remaining() {
+		while (!exhausted) {
+			decodeBlock(checkpoints - 1);
+		}
+
+		return Math.max(blockChars[checkpoints - 1] - position, 0);
+	}
+
+	/**
+	 * Loads the block that contains the given position.
+	 * @param pos the position to load
+	 * @return <code>false</code> if the position is beyond the end of input
+	 */
+	private boolean loadBlock(int pos) {
+		int last = checkpoints - 1;
+
+		if (pos < blockChars[last]) {
+			int index = Arrays.binarySearch(blockChars, 0, last, pos);
+			if (index < 0) index = -index - 2;
+			decodeBlock(index);
+			return true;
+		}
+
+		while (!exhausted) {
+			decodeBlock(checkpoints - 1);
+			if (pos < blockStart + blockLength) return true;
+		}
+
+		return false;
+	}
+
+	private void decodeBlock(int index) {
+		long byteStart = blockBytes[index];
+		boolean isNewBlock = index == checkpoints - 1 && !exhausted;
+
+		int capacity = Math.min(block.length, Integer.MAX_VALUE - blockChars[index]);
+		if (capacity == 0 && byteStart < byteEnd) {
+			throw new IllegalStateException(
+					"Cannot read more than " + Integer.MAX_VALUE + " characters: "
+					+ "byte " + byteStart + " of " + byteEnd + " decodes past the maximum position"
+			);
+		}
+
+		blockStart = blockChars[index];
+		blockLength = 0;
+
+		CharBuffer out = CharBuffer.wrap(block, 0, capacity);
+		long blockByteEnd = byteStart;
+
+		try {
+			mapWindow(byteStart);
+			decoder.reset();
+
+			while (true) {
+				boolean endOfInput = windowStart + window.limit() == byteEnd;
+				CoderResult result = decoder.decode(window, out, endOfInput);
+
+				if (result.isError()) {
+					result.throwException();
+				}
+
+				if (result.isOverflow()) break;
+
+				if (endOfInput) {
+					if (decoder.flush(out).isOverflow()) break;
+					markExhausted(index, out.position());
+					break;
+				}
+
+				// Underflow before the end of the file: continue in the next window
+				remapWindow(windowStart + window.position());
+			}
+
+			blockByteEnd = windowStart + window.position();
+		} catch (IOException e) {
+			lastException = e;
+			markExhausted(index, out.position());
+		}
+
+		blockLength = out.position();
+
+		if (isNewBlock && lineIndex != null) {
+			lineIndex.index(block, 0, blockLength);
+		}
+
+		if (index == checkpoints - 1 && !exhausted) {
+			addCheckpoint(blockStart + blockLength, blockByteEnd);
+		}
+	}
+
+	private void markExhausted(int index, int length) {
+		if (index == checkpoints - 1 && !exhausted) {
+			exhausted = true;
+			if (length != 0) addCheckpoint(blockChars[index] + length, -1);
+		}
+	}
+
+	private void addCheckpoint(int chars, long bytes) {
+		if (checkpoints == blockChars.length) {
+			int newLength = closestGreaterPowerOf2(checkpoints);
+			blockChars = Arrays.copyOf(blockChars, newLength);
+			blockBytes = Arrays.copyOf(blockBytes, newLength);
+		}
+
+		blockChars[checkpoints] = chars;
+		blockBytes[checkpoints] = bytes;
+		checkpoints++;
+	}
+
+	private void mapWindow(long byteStart) throws IOException {
+		if (
+				window != null &&
+				byteStart >= windowStart &&
+				byteStart - windowStart <= window.limit()
+		) {
+			window.position((int) (byteStart - windowStart));
+			return;
+		}
+
+		remapWindow(byteStart);
+	}
+
+	private void remapWindow(long byteStart) throws IOException {
+		long length = Math.min(byteEnd - byteStart, windowSize);
+		window = channel.map(FileChannel.MapMode.READ_ONLY, byteStart, length);
+		windowStart = byteStart;
+	}
+
+	/**
+	 * @see ru.windcorp.jputil.chars.reader.CharReader#getLastException()
+	 */
+	@Override
+	public IOException getLastException() {
+		return lastException;
+	}
+
+	/**
+	 * @see ru.windcorp.jputil.chars.reader.CharReader#resetLastException()
+	 */
+	@Override
+	public void resetLastException() {
+		lastException = null;
+	}
+
+	/**
+	 * Starts recording line starts as blocks are decoded for the first time.
+	 * Blocks that have already been decoded are decoded again and indexed immediately.
+	 * @return the line index of this reader
+	 * @see #getLineIndex()
+	 */
+	public LineIndex indexLines() {
+		if (lineIndex == null) {
+			LineIndex result = new LineIndex();
+			for (int i = 0; i < checkpoints - 1; ++i) {
+				decodeBlock(i);
+				result.index(block, 0, blockLength);
+			}
+			lineIndex = result;
+		}
+
+		return lineIndex;
+	}
+
+	/**
+	 * @return the line index of this reader or <code>null</code> if {@link #indexLines()}
+	 * has not been called
+	 */
+	public LineIndex getLineIndex() {
+		return lineIndex;
+	}
+
+	public FileChannel getChannel() {
+		return channel;
+	}
+
+	/**
+	 * @return the length of the decoded byte range
+	 */
+	public long getByteLength() {
+		return byteEnd - blockBytes[0];
+	}
+
+	/**
+	 * Closes the underlying channel if this reader has opened it.
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		window = null;
+		if (closeChannel) {
+			channel.close();
+		}
+	}
+
+}
@@ -0,0 +1,136 @@
+/*
+ * JPUtil
+ * Copyright (C) 2019  Javapony/OLEGSHA
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package ru.windcorp.jputil.chars.reader;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * A {@link ReadableByteChannel} that reads an {@link AsynchronousFileChannel}
+ * one block ahead. The next block is requested as soon as the previous one has been
+ * handed out, so the I/O overlaps with whatever the caller does with the data.
+ *
+ * @author Javapony
+ *
+ */
+class PrefetchingByteChannel implements ReadableByteChannel {
+
+	private final AsynchronousFileChannel src;
+	private long filePosition;
+
+	/**
+	 * Prefetched bytes. In read mode unless {@link #pendingRead} is not <code>null</code>.
+	 */
+	private final ByteBuffer prefetch;
+	private Future<Integer> pendingRead = null;
+
+	private boolean exhausted = false;
+	private boolean open = true;
+
+	PrefetchingByteChannel(AsynchronousFileChannel src, long position, int bufferSize) {
+		this.src = Objects.requireNonNull(src, "src");
+		this.filePosition = position;
+		this.prefetch = ByteBuffer.allocateDirect(bufferSize);
+
+		startRead();
+	}
+
+	private void startRead() {
+		prefetch.clear();
+		pendingRead = src.read(prefetch, filePosition);
+	}
+
+	private void awaitRead() throws IOException {
+		int read;
+
+		try {
+			read = pendingRead.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for a read");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		} finally {
+			pendingRead = null;
+			prefetch.flip();
+		}
+
+		if (read < 0) {
+			exhausted = true;
+		} else {
+			filePosition += read;
+		}
+	}
+
+	/**
+	 * @see java.nio.channels.ReadableByteChannel#read(java.nio.ByteBuffer)
+	 */
+	@Override
+	public int read(ByteBuffer dst) throws IOException {
+		if (!open) throw new ClosedChannelException();
+
+		if (pendingRead != null) {
+			awaitRead();
+		}
+
+		if (!prefetch.hasRemaining()) {
+			return exhausted ? -1 : 0;
+		}
+
+		int count = Math.min(dst.remaining(), prefetch.remaining());
+		int limit = prefetch.limit();
+		prefetch.limit(prefetch.position() + count);
+		dst.put(prefetch);
+		prefetch.limit(limit);
+
+		if (!prefetch.hasRemaining() && !exhausted) {
+			startRead();
+		}
+
+		return count;
+	}
+
+	/**
+	 * @see java.nio.channels.Channel#isOpen()
+	 */
+	@Override
+	public boolean isOpen() {
+		return open;
+	}
+
+	/**
+	 * Closes the underlying channel.
+	 * @see java.nio.channels.Channel#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		open = false;
+		src.close();
+	}
+
+}
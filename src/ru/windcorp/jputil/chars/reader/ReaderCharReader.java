@@ -26,12 +26,24 @@ import java.io.Reader;
  */
 public class ReaderCharReader extends BufferedCharReader {
 	
+	protected static final int DEFAULT_BLOCK_SIZE = 4096;
+	
 	private final Reader src;
 	private IOException lastException = null;
 
-	public ReaderCharReader(Reader src) {
+	/**
+	 * @param src the reader to read from
+	 * @param blockSize the minimum amount of characters requested from
+	 * <code>src</code> with a single {@link Reader#read(char[], int, int)} call
+	 */
+	public ReaderCharReader(Reader src, int blockSize) {
+		super(blockSize);
 		this.src = src;
 	}
+	
+	public ReaderCharReader(Reader src) {
+		this(src, DEFAULT_BLOCK_SIZE);
+	}
 
 	/**
 	 * @see ru.windcorp.jputil.chars.reader.BufferedCharReader#pullChar()
@@ -52,10 +64,10 @@ public class ReaderCharReader extends BufferedCharReader {
 	@Override
 	protected int pullChars(char[] buffer, int offset, int length) {
 		try {
-			return src.read(buffer, offset, length);
+			return src.read(buffer, offset, length); // Returns -1 at the end
 		} catch (IOException e) {
 			lastException = e;
-			return 0;
+			return -1;
 		}
 	}
 
@@ -17,8 +17,12 @@
  */
 package ru.windcorp.jputil.chars.reader;
 
+import java.nio.CharBuffer;
 import java.util.Objects;
 
+import ru.windcorp.jputil.chars.CharConsumer;
+import ru.windcorp.jputil.chars.CharPredicate;
+
 /**
  * @author Javapony
  *
@@ -54,12 +58,193 @@ public class StringCharReader extends AbstractCharReader {
 		return str.charAt(position + offset);
 	}
 	
+	/**
+	 * @see ru.windcorp.jputil.chars.reader.CharReader#viewUntil(CharPredicate)
+	 */
+	@Override
+	public CharSequence viewUntil(CharPredicate condition) {
+		checkPosition();
+		if (position >= length) return "";
+		
+		int start = position;
+		while (position < length && !condition.test(str.charAt(position + offset))) {
+			position++;
+		}
+		
+		return CharBuffer.wrap(str, start + offset, position + offset);
+	}
+	
+	private void checkPosition() {
+		if (position < 0) 
+			throw new IllegalStateException("Position " + position + " is invalid");
+	}
+	
+	/**
+	 * @see ru.windcorp.jputil.chars.reader.CharReader#getChars(char[], int, int)
+	 */
+	@Override
+	public int getChars(char[] output, int outputOffset, int count) {
+		checkPosition();
+		
+		int available = Math.max(Math.min(count, remaining()), 0);
+		if (available != 0) str.getChars(position + offset, position + offset + available, output, outputOffset);
+		position += available;
+		
+		if (available < count) {
+			output[outputOffset + available] = DONE;
+		}
+		
+		return available;
+	}
+	
+	/**
+	 * @see ru.windcorp.jputil.chars.reader.CharReader#getChars(CharConsumer, int)
+	 */
+	@Override
+	public int getChars(CharConsumer output, int count) {
+		checkPosition();
+		
+		if (count < 0) count = Integer.MAX_VALUE;
+		
+		int available = Math.max(Math.min(count, remaining()), 0);
+		if (available != 0) output.accept(str, position + offset, available);
+		position += available;
+		
+		return available;
+	}
+	
+	/**
+	 * @see ru.windcorp.jputil.chars.reader.CharReader#getString(int)
+	 */
+	@Override
+	public String getString(int count) {
+		checkPosition();
+		
+		int available = Math.min(count, remaining());
+		if (available <= 0) return "";
+		
+		String result = str.substring(position + offset, position + offset + available);
+		position += available;
+		
+		return result;
+	}
+	
+	/**
+	 * @see ru.windcorp.jputil.chars.reader.CharReader#match(CharSequence)
+	 */
+	@Override
+	public boolean match(CharSequence seq) {
+		checkPosition();
+		
+		int seqLength = seq.length();
+		for (int i = 0; i < seqLength; ++i) {
+			if (position >= length) return false;
+			if (str.charAt(position + offset) != seq.charAt(i)) return false;
+			position++;
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * @see ru.windcorp.jputil.chars.reader.CharReader#match(char[])
+	 */
+	@Override
+	public boolean match(char[] chars) {
+		checkPosition();
+		
+		for (int i = 0; i < chars.length; ++i) {
+			if (position >= length) return false;
+			if (str.charAt(position + offset) != chars[i]) return false;
+			position++;
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * @see ru.windcorp.jputil.chars.reader.CharReader#skip(CharPredicate)
+	 */
+	@Override
+	public int skip(CharPredicate condition) {
+		checkPosition();
+		
+		int start = position;
+		while (position < length && condition.test(str.charAt(position + offset))) {
+			position++;
+		}
+		
+		return Math.max(position - start, 0);
+	}
+	
+	/**
+	 * @see ru.windcorp.jputil.chars.reader.CharReader#skipLine()
+	 */
+	@Override
+	public int skipLine() {
+		checkPosition();
+		
+		int start = position;
+		while (position < length) {
+			char c = str.charAt(position + offset);
+			
+			if (c == '\n' || c == '\r') {
+				int result = position - start;
+				position++;
+				
+				if (c == '\r' && position < length && str.charAt(position + offset) == '\n') {
+					position++;
+				}
+				
+				return result;
+			}
+			
+			position++;
+		}
+		
+		return Math.max(position - start, 0);
+	}
+	
+	/**
+	 * @see ru.windcorp.jputil.chars.reader.CharReader#readUntil(CharPredicate)
+	 */
+	@Override
+	public char[] readUntil(CharPredicate condition) {
+		checkPosition();
+		
+		int start = position;
+		while (position < length && !condition.test(str.charAt(position + offset))) {
+			position++;
+		}
+		
+		int count = Math.max(position - start, 0);
+		char[] result = new char[count];
+		if (count != 0) str.getChars(start + offset, start + offset + count, result, 0);
+		return result;
+	}
+	
+	/**
+	 * @see ru.windcorp.jputil.chars.reader.CharReader#readLine()
+	 */
+	@Override
+	public char[] readLine() {
+		checkPosition();
+		
+		int start = position;
+		int count = skipLine();
+		position = start + count; // The line separator is not consumed
+		
+		char[] result = new char[count];
+		if (count != 0) str.getChars(start + offset, start + offset + count, result, 0);
+		return result;
+	}
+	
 	/**
 	 * @see ru.windcorp.jputil.chars.reader.CharReader#remaining()
 	 */
 	@Override
 	public int remaining() {
-		return length - position;
+		return Math.max(length - position, 0);
 	}
 
 }
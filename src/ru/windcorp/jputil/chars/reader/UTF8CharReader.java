@@ -0,0 +1,284 @@
+/*
+ * JPUtil
+ * Copyright (C) 2019  Javapony/OLEGSHA
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package ru.windcorp.jputil.chars.reader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.MalformedInputException;
+import java.util.Objects;
+
+/**
+ * A {@link CharReader} that decodes UTF-8 directly from an {@link InputStream}.
+ * <p>
+ * Bytes are read into a reusable buffer and decoded straight into the character buffer
+ * of {@link BufferedCharReader}. Runs of ASCII bytes are checked and copied eight
+ * bytes at a time.
+ * <p>
+ * Malformed input is replaced with <code>U+FFFD</code> and reported with
+ * {@link #getLastException()} as a {@link MalformedInputException}.
+ *
+ * @author Javapony
+ *
+ */
+public class UTF8CharReader extends BufferedCharReader {
+
+	protected static final int DEFAULT_BYTE_BUFFER_SIZE = 8192;
+	protected static final int DEFAULT_BLOCK_SIZE = 4096;
+
+	private static final long NON_ASCII_MASK = 0x8080808080808080L;
+	private static final char REPLACEMENT = '\uFFFD';
+
+	private final InputStream src;
+
+	private final byte[] bytes;
+	private final ByteBuffer bytesView;
+
+	/**
+	 * Undecoded bytes are stored at <code>[bytesStart; bytesEnd)</code>.
+	 */
+	private int bytesStart = 0;
+	private int bytesEnd = 0;
+
+	/**
+	 * Whether <code>src</code> has reached its end or failed.
+	 */
+	private boolean srcExhausted = false;
+
+	/**
+	 * Low surrogate that did not fit into the output array, or <code>-1</code>.
+	 */
+	private int pendingChar = -1;
+
+	private final char[] singleChar = new char[1];
+
+	private IOException lastException = null;
+
+	/**
+	 * @param src the stream to read from
+	 * @param byteBufferSize the size of the byte buffer, at least 4
+	 * @param blockSize the minimum amount of characters decoded at once
+	 */
+	public UTF8CharReader(InputStream src, int byteBufferSize, int blockSize) {
+		super(blockSize);
+		this.src = Objects.requireNonNull(src, "src");
+
+		if (byteBufferSize < 4)
+			throw new IllegalArgumentException("byteBufferSize must be at least 4 (" + byteBufferSize + ")");
+
+		this.bytes = new byte[byteBufferSize];
+		this.bytesView = ByteBuffer.wrap(bytes);
+	}
+
+	public UTF8CharReader(InputStream src) {
+		this(src, DEFAULT_BYTE_BUFFER_SIZE, DEFAULT_BLOCK_SIZE);
+	}
+
+	/**
+	 * @see ru.windcorp.jputil.chars.reader.BufferedCharReader#pullChar()
+	 */
+	@Override
+	protected char pullChar() {
+		if (pullChars(singleChar, 0, 1) <= 0) return DONE;
+		return singleChar[0];
+	}
+
+	/**
+	 * @see ru.windcorp.jputil.chars.reader.BufferedCharReader#pullChars(char[], int, int)
+	 */
+	@Override
+	protected int pullChars(char[] buffer, int offset, int length) {
+		int out = offset;
+		final int end = offset + length;
+
+		if (pendingChar >= 0) {
+			buffer[out++] = (char) pendingChar;
+			pendingChar = -1;
+		}
+
+		while (out < end) {
+
+			// ASCII fast path: find a run of 7-bit bytes eight at a time, then copy it in one loop
+			int run = 0;
+			int maxRun = Math.min(end - out, bytesEnd - bytesStart) - Long.BYTES;
+			while (run <= maxRun && (bytesView.getLong(bytesStart + run) & NON_ASCII_MASK) == 0) {
+				run += Long.BYTES;
+			}
+			
+			if (run != 0) {
+				for (int i = 0; i < run; ++i) {
+					buffer[out + i] = (char) (bytes[bytesStart + i] & 0xFF);
+				}
+				
+				out += run;
+				bytesStart += run;
+			}
+
+			if (out == end) break;
+
+			if (bytesStart == bytesEnd) {
+				// Do not block if some characters are ready
+				if (out != offset || !fillBytes()) break;
+				continue;
+			}
+
+			int b0 = bytes[bytesStart];
+
+			if (b0 >= 0) {
+				buffer[out++] = (char) b0;
+				bytesStart++;
+				continue;
+			}
+
+			b0 &= 0xFF;
+			int sequenceLength = getSequenceLength(b0);
+
+			if (sequenceLength == 0) {
+				buffer[out++] = malformed(1);
+				continue;
+			}
+
+			if (bytesEnd - bytesStart < sequenceLength) {
+				if (srcExhausted) {
+					buffer[out++] = malformed(1);
+					continue;
+				}
+
+				if (out != offset) break;
+				fillBytes();
+				continue;
+			}
+
+			int codePoint = decode(b0, sequenceLength);
+
+			if (codePoint < 0) {
+				buffer[out++] = malformed(1);
+			} else if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+				buffer[out++] = (char) codePoint;
+				bytesStart += sequenceLength;
+			} else {
+				buffer[out++] = Character.highSurrogate(codePoint);
+
+				if (out == end) {
+					pendingChar = Character.lowSurrogate(codePoint);
+				} else {
+					buffer[out++] = Character.lowSurrogate(codePoint);
+				}
+
+				bytesStart += sequenceLength;
+			}
+		}
+
+		int pulled = out - offset;
+		return pulled == 0 ? -1 : pulled;
+	}
+
+	private static int getSequenceLength(int leadByte) {
+		if (leadByte < 0xC2) return 0; // Continuation byte or overlong 2-byte sequence
+		if (leadByte < 0xE0) return 2;
+		if (leadByte < 0xF0) return 3;
+		if (leadByte < 0xF5) return 4;
+		return 0;
+	}
+
+	/**
+	 * Decodes the sequence at <code>bytesStart</code>.
+	 * @return the code point or -1 if the sequence is malformed
+	 */
+	private int decode(int b0, int sequenceLength) {
+		int i = bytesStart;
+		int b1 = bytes[i + 1];
+		if ((b1 & 0xC0) != 0x80) return -1;
+
+		if (sequenceLength == 2) {
+			return ((b0 & 0x1F) << 6) | (b1 & 0x3F);
+		}
+
+		int b2 = bytes[i + 2];
+		if ((b2 & 0xC0) != 0x80) return -1;
+
+		if (sequenceLength == 3) {
+			int codePoint = ((b0 & 0x0F) << 12) | ((b1 & 0x3F) << 6) | (b2 & 0x3F);
+
+			if (codePoint < 0x800 || Character.isSurrogate((char) codePoint)) return -1;
+			return codePoint;
+		}
+
+		int b3 = bytes[i + 3];
+		if ((b3 & 0xC0) != 0x80) return -1;
+
+		int codePoint = ((b0 & 0x07) << 18) | ((b1 & 0x3F) << 12) | ((b2 & 0x3F) << 6) | (b3 & 0x3F);
+
+		if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT || codePoint > Character.MAX_CODE_POINT) return -1;
+		return codePoint;
+	}
+
+	private char malformed(int length) {
+		bytesStart += length;
+		if (lastException == null) {
+			lastException = new MalformedInputException(length);
+		}
+		return REPLACEMENT;
+	}
+
+	/**
+	 * Moves undecoded bytes to the beginning of the buffer and reads more bytes.
+	 * @return <code>false</code> if no bytes could be read
+	 */
+	private boolean fillBytes() {
+		if (srcExhausted) return false;
+
+		int remaining = bytesEnd - bytesStart;
+		System.arraycopy(bytes, bytesStart, bytes, 0, remaining);
+		bytesStart = 0;
+		bytesEnd = remaining;
+
+		try {
+			int read = src.read(bytes, bytesEnd, bytes.length - bytesEnd);
+
+			if (read < 0) {
+				srcExhausted = true;
+				return false;
+			}
+
+			bytesEnd += read;
+			return true;
+		} catch (IOException e) {
+			lastException = e;
+			srcExhausted = true;
+			return false;
+		}
+	}
+
+	/**
+	 * @see ru.windcorp.jputil.chars.reader.CharReader#getLastException()
+	 */
+	@Override
+	public IOException getLastException() {
+		return lastException;
+	}
+
+	/**
+	 * @see ru.windcorp.jputil.chars.reader.CharReader#resetLastException()
+	 */
+	@Override
+	public void resetLastException() {
+		lastException = null;
+	}
+
+}
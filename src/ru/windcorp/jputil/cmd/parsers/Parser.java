@@ -258,6 +258,17 @@ public abstract class Parser {
 		return sb.toString();
 	}
 	
+	/**
+	 * Writes the debug string to <code>out</code> as it is built, without keeping it in memory.
+	 * {@link java.io.IOException IOException}s are rethrown as {@link java.io.UncheckedIOException UncheckedIOException}s.
+	 * @param out the destination of the debug string
+	 */
+	public final void toDebugString(Appendable out) {
+		IndentedStringBuilder sb = new IndentedStringBuilder(out);
+		toDebugString(sb);
+		sb.flush();
+	}
+	
 	protected void toDebugString(IndentedStringBuilder sb) {
 		sb.append(toString());
 	}
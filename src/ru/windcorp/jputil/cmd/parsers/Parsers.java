@@ -38,6 +38,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
+import ru.windcorp.jputil.chars.CharPredicate;
 import ru.windcorp.jputil.chars.FancyCharacterIterator;
 import ru.windcorp.jputil.chars.StringUtil;
 
@@ -53,6 +54,9 @@ public class Parsers {
 	private static final Map<String, ParserCreator> CREATORS = Collections.synchronizedMap(new HashMap<>());
 	
 	private static final Parser[] ARRAY_TEMPLATE = new Parser[0];
+	private static final CharPredicate ID_CHARACTERS = CharPredicate.compile(
+			c -> "<>[]|\"().".indexOf(c) < 0 && !Character.isWhitespace(c)
+	);
 	
 	private static boolean areDefaultsRegistered = false;
 
@@ -361,7 +365,7 @@ public class Parsers {
 	}
 
 	private static void skipWhitespace(CharacterIterator it) {
-		while (Character.isWhitespace(it.current())) it.next();
+		while (CharPredicate.WHITESPACE.test(it.current())) it.next();
 	}
 	
 	private static Parser createAppropriateItem(List<Parser> contents, String lastId, List<Parser> lastContents) {
@@ -394,7 +398,7 @@ public class Parsers {
 	}
 
 	private static boolean isIdCharacter(char c) {
-		return "<>[]|\"().".indexOf(c) < 0 && !Character.isWhitespace(c);
+		return ID_CHARACTERS.test(c);
 	}
 	
 	public static Parser appendEndCheck(Parser parser) {
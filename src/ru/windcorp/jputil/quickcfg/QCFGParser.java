@@ -15,7 +15,6 @@
 package ru.windcorp.jputil.quickcfg;
 
 import java.io.IOException;
-import java.io.LineNumberReader;
 import java.io.Reader;
 import java.util.HashMap;
 import java.util.Map;
@@ -23,12 +22,15 @@ import java.util.function.IntSupplier;
 
 import ru.windcorp.jputil.chars.CharPredicate;
 import ru.windcorp.jputil.chars.StringUtil;
+import ru.windcorp.jputil.chars.reader.BufferedCharReader;
+import ru.windcorp.jputil.chars.reader.LineIndex;
+import ru.windcorp.jputil.chars.reader.ReaderCharReader;
 
 public class QCFGParser {
 	
-	public static final CharPredicate WHITESPACE = Character::isWhitespace;
-	public static final CharPredicate NEWLINES = CharPredicate.forArray('\n', '\r');
-	public static final CharPredicate WHITESPACE_NO_NEWLINES = c -> WHITESPACE.test(c) && !NEWLINES.test(c);
+	public static final CharPredicate WHITESPACE = CharPredicate.WHITESPACE;
+	public static final CharPredicate NEWLINES = CharPredicate.compile(CharPredicate.forArray('\n', '\r'));
+	public static final CharPredicate WHITESPACE_NO_NEWLINES = CharPredicate.and(WHITESPACE, CharPredicate.negate(NEWLINES));
 	
 	public static interface Setter {
 		void set(String  declar) throws InvalidSettingException;
@@ -347,25 +349,49 @@ public class QCFGParser {
 	}
 	
 	public void parse(Reader reader) throws IOException, QCFGException {
-		LineNumberReader lineReader = new LineNumberReader(reader);
+		BufferedCharReader in = new ReaderCharReader(reader).setRewindLimit(0);
+		LineIndex lines = in.indexLines();
+		boolean[] reachedEnd = { false };
 		
 		Mode mode = Mode.INTERSTATEMENT;
-		Context context = new Context(lineReader::getLineNumber);
+		Context context = new Context(() -> getLineNumber(lines, in.getPosition(), reachedEnd[0]));
 		
 		while (true) {
 			if (!context.getAndResetProcessAgain()) {
-				int read = lineReader.read();
-				if (read == -1) break;
-				context.current = (char) read;
+				if (in.isEnd()) {
+					reachedEnd[0] = true;
+					break;
+				}
+				
+				char c = in.consume();
+				if (c == '\r') {
+					// "\r" and "\r\n" reach the modes as a single '\n'
+					if (in.current() == '\n') in.next();
+					c = '\n';
+				}
+				
+				context.current = c;
 			}
 			
 			mode = mode.getParser().process(this, context);
 		}
+		
+		if (in.hasErrored()) throw in.getLastException();
 			
 		handleEOF(mode, context);
 		checkRequiredSettings();
 	}
 
+	/**
+	 * Numbers lines the way LineNumberReader does: a line terminator counts as soon as it
+	 * has been read, and reaching the end of an unterminated last line counts as one more line.
+	 */
+	private static int getLineNumber(LineIndex lines, int position, boolean reachedEnd) {
+		int line = lines.lineOf(position);
+		if (reachedEnd && position != lines.getLineStart(line)) line++;
+		return line;
+	}
+
 	private void handleEOF(Mode mode, Context context) throws QCFGException {
 		if (mode == Mode.READING_NAME || mode == Mode.TRIMMING_NAME) {
 			throw new QCFGException(context.getLineNumber(), "Last statement is incomplete: value missing");
@@ -14,12 +14,9 @@
  */
 package ru.windcorp.jputil.quicklang;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.UncheckedIOException;
-import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
@@ -66,8 +63,7 @@ public class QLang {
 		
 		QLang lang = new QLang(name);
 		
-		BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
-		CharReader in = CharReaders.wrap(reader);
+		CharReader in = CharReaders.wrapUTF8(input);
 		
 		while (!in.isEnd()) {
 			if (in.hasErrored()) throw in.getLastException();
@@ -76,7 +72,7 @@ public class QLang {
 				in.skipLine();
 			} else {
 				in.skipWhitespace();
-				String key = new String(in.readUntil(CharPredicate.forChar('=')));
+				String key = in.viewUntil(CharPredicate.forChar('=')).toString();
 				
 				if (in.current() != '=') {
 					lang.getMap().put(key, "null");
@@ -15,6 +15,7 @@
 package ru.windcorp.jputil.selectors;
 
 import ru.windcorp.jputil.SyntaxException;
+import ru.windcorp.jputil.chars.FieldSplitter;
 import ru.windcorp.jputil.chars.StringUtil;
 
 public abstract class NamedParameterizedSelector<T> extends NamedSelector<T> {
@@ -29,17 +30,18 @@ public abstract class NamedParameterizedSelector<T> extends NamedSelector<T> {
 	
 	@Override
 	public Selector<T> derive(String name) throws SyntaxException {
-		String[] parts = StringUtil.split(name, separator, 2);
+		FieldSplitter parts = StringUtil.splitLazily(name, separator);
 		
-		if (parts[1] == null) {
+		parts.advance();
+		if (!parts.hasNext()) {
 			return null;
 		}
 		
-		if (!matchesName(parts[0])) {
+		if (!matchesName(name.substring(0, parts.getEnd()))) {
 			return null;
 		}
 		
-		NamedParameterizedSelector<T> selector = deriveImpl(parts[1]);
+		NamedParameterizedSelector<T> selector = deriveImpl(name.substring(parts.getEnd() + 1));
 		selector.givenName = name;
 		return selector;
 	}